@@ -0,0 +1,37 @@
+package ru.practicum.ewm.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.dto.EventMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialisation of EventFullDto, the response body of most event endpoints
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventJsonBenchmark {
+    @Param({"1", "100", "1000"})
+    private int events;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<EventFullDto> dtos;
+
+    @Setup
+    public void setUp() {
+        dtos = EventMapper.toEventFullDto(Fixtures.events(events));
+    }
+
+    @Benchmark
+    public byte[] writeEventFullDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
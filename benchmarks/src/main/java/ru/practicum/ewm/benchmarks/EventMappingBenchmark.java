@@ -0,0 +1,58 @@
+package ru.practicum.ewm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+import ru.practicum.ewm.compilation.dto.CompilationMapper;
+import ru.practicum.ewm.compilation.model.Compilation;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.dto.EventMapper;
+import ru.practicum.ewm.event.dto.EventShortDto;
+import ru.practicum.ewm.event.model.Event;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of event lists and compilation pages to DTOs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventMappingBenchmark {
+    private static final int COMPILATIONS = 10;
+
+    @Param({"100", "1000", "10000"})
+    private int events;
+
+    private List<Event> eventList;
+    private List<Compilation> compilations;
+    private Map<Long, List<Event>> compilationEvents;
+
+    @Setup
+    public void setUp() {
+        eventList = Fixtures.events(events);
+        compilations = Fixtures.compilations(eventList, COMPILATIONS, events / COMPILATIONS);
+        compilationEvents = new HashMap<>();
+        for (Compilation compilation : compilations) {
+            compilationEvents.put(compilation.getId(), new ArrayList<>(compilation.getEvents()));
+        }
+    }
+
+    @Benchmark
+    public List<EventFullDto> toEventFullDto() {
+        return EventMapper.toEventFullDto(eventList);
+    }
+
+    @Benchmark
+    public List<EventShortDto> toEventShortDto() {
+        return EventMapper.toEventShortDto(eventList);
+    }
+
+    @Benchmark
+    public List<CompilationDto> toCompilationDto() {
+        return CompilationMapper.toCompilationDto(compilations, compilationEvents);
+    }
+}
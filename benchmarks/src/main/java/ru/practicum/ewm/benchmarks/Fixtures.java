@@ -0,0 +1,109 @@
+package ru.practicum.ewm.benchmarks;
+
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.compilation.model.Compilation;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.Status;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.model.EndpointHit;
+import ru.practicum.ewm.user.model.User;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Deterministic test data for the benchmarks
+ */
+final class Fixtures {
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int CATEGORIES = 20;
+    private static final int USERS = 1000;
+
+    private Fixtures() {
+    }
+
+    static List<Event> events(int count) {
+        List<Category> categories = new ArrayList<>(CATEGORIES);
+        for (long i = 1; i <= CATEGORIES; i++) {
+            categories.add(new Category(i, "Category " + i));
+        }
+        List<User> users = new ArrayList<>(USERS);
+        for (long i = 1; i <= USERS; i++) {
+            users.add(new User(i, "User " + i, "user" + i + "@example.com"));
+        }
+        List<Event> events = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            events.add(Event.builder()
+                    .id((long) i)
+                    .annotation("Annotation of event " + i + ", long enough to look like a real one")
+                    .category(categories.get(i % CATEGORIES))
+                    .confirmedRequests((long) (i % 50))
+                    .createdOn(NOW.minusDays(i % 30))
+                    .description("Description of event " + i + ". ".repeat(20))
+                    .eventDate(NOW.plusHours(i))
+                    .initiator(users.get(i % USERS))
+                    .location(new Location((long) i, 55.75 + i % 100 / 1000.0, 37.61 + i % 100 / 1000.0,
+                            null, null))
+                    .paid(i % 2 == 0)
+                    .participantLimit((long) (i % 5 * 50))
+                    .publishedOn(NOW.minusDays(i % 7))
+                    .requestModeration(i % 3 != 0)
+                    .state(Status.PUBLISHED)
+                    .title("Event " + i)
+                    .views((long) i * 7)
+                    .build());
+        }
+        return events;
+    }
+
+    static List<Compilation> compilations(List<Event> events, int count, int eventsPerCompilation) {
+        List<Compilation> compilations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<Event> compilationEvents = new HashSet<>();
+            for (int j = 0; j < eventsPerCompilation; j++) {
+                compilationEvents.add(events.get((i * eventsPerCompilation + j) % events.size()));
+            }
+            compilations.add(new Compilation((long) i + 1, i % 2 == 0, "Compilation " + i, compilationEvents));
+        }
+        return compilations;
+    }
+
+    /**
+     * Hits of one hour spread over uris and a tenth as many distinct ips as hits
+     */
+    static List<EndpointHit> hits(int count, int uris) {
+        int ips = Math.max(1, count / 10);
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int ip = i % ips;
+            hits.add(new EndpointHit((long) i, "ewm-main-service", "/events/" + i % uris,
+                    "10." + (ip >> 16 & 255) + "." + (ip >> 8 & 255) + "." + (ip & 255),
+                    NOW.plusMinutes(10).plusNanos(i * 1000L)));
+        }
+        return hits;
+    }
+
+    /**
+     * Creates an implementation of the interface that answers calls from the map by method name
+     * and returns null, false or 0 for every other method
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (answers.containsKey(method.getName())) {
+                return answers.get(method.getName());
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            if (method.getReturnType() == int.class) {
+                return 0;
+            }
+            if (method.getReturnType() == long.class) {
+                return 0L;
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.ewm.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.ewm.model.ViewStatsDto;
+import ru.practicum.ewm.model.ViewStatsResult;
+import ru.practicum.ewm.repository.StatsBucketRepository;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsTimeSeriesRepository;
+import ru.practicum.ewm.repository.StatsVisitorRepository;
+import ru.practicum.ewm.service.HitSketchService;
+import ru.practicum.ewm.service.StatsPartitionService;
+import ru.practicum.ewm.service.StatsServiceImpl;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM side of StatsServiceImpl.getStats. Repositories are replaced with stubs returning prepared rows, so the
+ * database work itself is not measured. Exact counts receive one row per uri already grouped by the database,
+ * so their cost does not depend on the number of hits and they have no hits parameter. Only approximate unique
+ * counts feed every hit of the range into HyperLogLog sketches and are measured over the given number of hits
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsAggregationBenchmark {
+    private static final int URIS = 100;
+    private static final String APP = "ewm-main-service";
+    private static final String HOUR_START = "2024-01-01 00:05:00";
+    private static final String HOUR_END = "2024-01-01 00:55:00";
+    private static final String DAY_END = "2024-01-02 00:55:00";
+
+    @Benchmark
+    public ViewStatsResult countHits(GroupedHits state) {
+        return state.statsService.getStats(HOUR_START, DAY_END, null, false, false);
+    }
+
+    @Benchmark
+    public ViewStatsResult countUniqueHits(GroupedHits state) {
+        return state.statsService.getStats(HOUR_START, HOUR_END, null, true, false);
+    }
+
+    @Benchmark
+    public ViewStatsResult countApproximateUniqueHits(RawHits state) {
+        return state.statsService.getStats(HOUR_START, HOUR_END, null, true, true);
+    }
+
+    /**
+     * Stubs returning rows grouped by uri, as the database does for exact counts
+     */
+    @State(Scope.Benchmark)
+    public static class GroupedHits {
+        private StatsServiceImpl statsService;
+
+        @Setup
+        public void setUp() {
+            Map<String, Object> statsAnswers = new HashMap<>();
+            statsAnswers.put("findAllByTimestampGreaterThanEqualAndTimestampIsBefore", List.of());
+            statsAnswers.put("countHitsBetween", groupedRows());
+            statsAnswers.put("countHitsFrom", groupedRows());
+            statsAnswers.put("countUniqueHitsBetween", groupedRows());
+            statsService = statsService(statsAnswers);
+        }
+    }
+
+    /**
+     * Stubs returning every hit of the range, as read for approximate unique counts
+     */
+    @State(Scope.Benchmark)
+    public static class RawHits {
+        @Param({"10000", "100000", "1000000"})
+        private int hits;
+
+        private StatsServiceImpl statsService;
+
+        @Setup
+        public void setUp() {
+            Map<String, Object> statsAnswers = new HashMap<>();
+            statsAnswers.put("findAllByTimestampIsAfterAndTimestampIsBefore", Fixtures.hits(hits, URIS));
+            statsAnswers.put("findAllByTimestampGreaterThanEqualAndTimestampIsBefore", List.of());
+            statsService = statsService(statsAnswers);
+        }
+    }
+
+    private static StatsServiceImpl statsService(Map<String, Object> statsAnswers) {
+        return new StatsServiceImpl(
+                Fixtures.stub(StatsRepository.class, statsAnswers),
+                Fixtures.stub(StatsBucketRepository.class, Map.of("sumHitsByBuckets", groupedRows())),
+                Fixtures.stub(HitSketchService.class, Map.of()),
+                Fixtures.stub(StatsPartitionService.class, Map.of()),
+                new StatsTimeSeriesRepository(Fixtures.stub(DataSource.class, Map.of())),
+                new StatsVisitorRepository(Fixtures.stub(DataSource.class, Map.of())));
+    }
+
+    private static List<ViewStatsDto> groupedRows() {
+        List<ViewStatsDto> rows = new ArrayList<>(URIS);
+        for (int i = 0; i < URIS; i++) {
+            rows.add(new ViewStatsDto(APP, "/events/" + i, 1000L));
+        }
+        return rows;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import ru.practicum.ewm.category.exception.CategoryNotEmptyException;
 import ru.practicum.ewm.category.exception.CategoryNotFoundException;
 import ru.practicum.ewm.comment.exception.CommentNotFoundException;
@@ -63,6 +64,22 @@ public class ErrorHandler {
                 .build();
     }
 
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiError handleAsyncRequestTimeoutException(Throwable e) {
+        List<String> errors = new ArrayList<>();
+        for (StackTraceElement stackTraceElement : e.getStackTrace()) {
+            errors.add(stackTraceElement + "\n");
+        }
+        return ApiError.builder()
+                .errors(errors)
+                .message(e.getMessage())
+                .reason("The request was not completed in time")
+                .status(HttpStatus.SERVICE_UNAVAILABLE.toString())
+                .timestamp(LocalDateTime.now().format(FORMATTER))
+                .build();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiError handleBadRequest(Throwable e) {
@@ -0,0 +1,28 @@
+package ru.practicum.ewm;
+
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL dialect with full-text search and distance functions for JPQL queries.
+ * Both full-text functions build the same tsvector as the events_search_idx expression index created
+ * by the V2 migration, so the index is used for fts_match, and must be changed together with it.
+ * haversine(lat1, lon1, lat2, lon2, cos(lat2)) returns the haversine of the central angle between two points,
+ * the cosine is passed in so every argument appears in the template once or is a column, and parameters
+ * appear in the order of the arguments, which is the order Hibernate binds them in
+ */
+public class EwmPostgreSQLDialect extends PostgreSQL10Dialect {
+    private static final String SEARCH_VECTOR = "to_tsvector('simple', coalesce(?1, '') || ' ' || coalesce(?2, ''))";
+
+    public EwmPostgreSQLDialect() {
+        super();
+        registerFunction("fts_match", new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(" + SEARCH_VECTOR + " @@ to_tsquery('simple', ?3))"));
+        registerFunction("fts_rank", new SQLFunctionTemplate(StandardBasicTypes.DOUBLE,
+                "ts_rank(" + SEARCH_VECTOR + ", to_tsquery('simple', ?3))"));
+        registerFunction("haversine", new SQLFunctionTemplate(StandardBasicTypes.DOUBLE,
+                "(power(sin(radians(?1 - ?3) / 2), 2) "
+                        + "+ power(sin(radians(?2 - ?4) / 2), 2) * ?5 * cos(radians(?1)))"));
+    }
+}
@@ -7,7 +7,9 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.ewm.comment.dto.CommentDto;
 import ru.practicum.ewm.comment.dto.NewCommentDto;
 import ru.practicum.ewm.comment.service.CommentService;
+import ru.practicum.ewm.pagination.CursorPage;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Positive;
@@ -110,13 +112,20 @@ public class CommentController {
      * @param text string query to search comments
      * @param from number of page to get events from
      * @param size number of events to get
+     * @param cursor cursor from X-Next-Cursor header of the previous page, from is ignored if it is set
      * @return Method returns found comments
      */
     @GetMapping("/comments/search")
     @ResponseStatus(HttpStatus.OK)
     public List<CommentDto> searchComments(@NotBlank @RequestParam(name = "text") String text,
                                            @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                                           @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
-        return commentService.searchComments(text, from, size);
+                                           @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+                                           @RequestParam(name = "cursor", required = false) String cursor,
+                                           HttpServletResponse response) {
+        CursorPage<CommentDto> page = commentService.searchComments(text, from, size, cursor);
+        if (page.getNextCursor() != null) {
+            response.setHeader(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return page.getItems();
     }
 }
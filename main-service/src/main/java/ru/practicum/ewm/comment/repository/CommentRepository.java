@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.comment.model.Comment;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -14,6 +15,7 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     @Query("SELECT c From Comment c " +
             "WHERE (lower(c.text) like lower(concat('%', ?1, '%'))) " +
-            "ORDER BY c.lastUpdated DESC")
-    List<Comment> search(String text, Pageable pageable);
+            "AND (c.lastUpdated < ?2 OR (c.lastUpdated = ?2 AND c.id < ?3) OR CAST (?2 AS timestamp) IS NULL) " +
+            "ORDER BY c.lastUpdated DESC, c.id DESC")
+    List<Comment> search(String text, LocalDateTime beforeLastUpdated, long beforeId, Pageable pageable);
 }
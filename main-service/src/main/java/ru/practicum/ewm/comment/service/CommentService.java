@@ -2,6 +2,7 @@ package ru.practicum.ewm.comment.service;
 
 import ru.practicum.ewm.comment.dto.CommentDto;
 import ru.practicum.ewm.comment.dto.NewCommentDto;
+import ru.practicum.ewm.pagination.CursorPage;
 
 import java.util.List;
 
@@ -20,5 +21,5 @@ public interface CommentService {
 
     void deleteCommentByAdmin(long commentId);
 
-    List<CommentDto> searchComments(String text, int from, int size);
+    CursorPage<CommentDto> searchComments(String text, int from, int size, String cursor);
 }
@@ -1,5 +1,6 @@
 package ru.practicum.ewm.comment.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -17,6 +18,8 @@ import ru.practicum.ewm.event.exception.EventNotFoundException;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.Status;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.pagination.Cursor;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.user.exception.UserNotFoundException;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
@@ -27,6 +30,7 @@ import java.util.List;
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "ewm.service", histogram = true)
 public class CommentServiceImpl implements CommentService {
     private final CommentRepository commentRepository;
     private final EventRepository eventRepository;
@@ -149,12 +153,17 @@ public class CommentServiceImpl implements CommentService {
      * @param text string query to search comments
      * @param from number of page to get events from
      * @param size number of events to get
+     * @param cursor cursor of the last comment of the previous page, from is ignored if it is set
      * @return Method returns found comments
      */
     @Override
-    public List<CommentDto> searchComments(String text, int from, int size) {
-        List<Comment> foundComments = commentRepository.search(text, PageRequest.of(from / size, size));
+    public CursorPage<CommentDto> searchComments(String text, int from, int size, String cursor) {
+        Cursor after = cursor == null ? null : Cursor.decode(cursor);
+        PageRequest pageRequest = after == null ? PageRequest.of(from / size, size) : PageRequest.of(0, size);
+        List<Comment> foundComments = commentRepository.search(text, after == null ? null : after.getDateKey(),
+                after == null ? Long.MAX_VALUE : after.getId(), pageRequest);
         log.info("Found {} comments by text={}", foundComments.size(), text);
-        return CommentMapper.commentToCommentDto(foundComments);
+        return CursorPage.of(foundComments, size, comment -> Cursor.encode(comment.getLastUpdated(), comment.getId()),
+                CommentMapper::commentToCommentDto);
     }
 }
@@ -2,23 +2,31 @@ package ru.practicum.ewm.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.ewm.compilation.dto.CompilationDto;
 import ru.practicum.ewm.compilation.dto.NewCompilationDto;
 import ru.practicum.ewm.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.ewm.compilation.service.CompilationService;
+import ru.practicum.ewm.compilation.snapshot.PinnedCompilationsSnapshot;
+import ru.practicum.ewm.execution.RequestExecutor;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 @Validated
 public class CompilationController {
     private final CompilationService compilationService;
+    private final PinnedCompilationsSnapshot pinnedCompilationsSnapshot;
+    private final RequestExecutor requestExecutor;
 
     /**
      * Method for getting info about all compilations
@@ -27,10 +35,27 @@ public class CompilationController {
      */
     @GetMapping("/compilations")
     @ResponseStatus(HttpStatus.OK)
-    public List<CompilationDto> get(@RequestParam(name = "pinned", required = false) Boolean pinned,
-                                    @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                                    @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
-        return compilationService.get(pinned, from, size);
+    public CompletableFuture<List<CompilationDto>> get(@RequestParam(name = "pinned", required = false) Boolean pinned,
+                                                       @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
+                                                       @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
+        return requestExecutor.submit(() -> compilationService.get(pinned, from, size));
+    }
+
+    /**
+     * Method for getting info about pinned compilations from the prebuilt snapshot
+     * @return Method returns info about pinned compilations or 304 if the page matches If-None-Match
+     */
+    @GetMapping(value = "/compilations", params = "pinned=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getPinned(@PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
+                                            @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+                                            WebRequest request) {
+        PinnedCompilationsSnapshot.Page page = pinnedCompilationsSnapshot.getPage(from, size);
+        if (request.checkNotModified(page.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(page.getEtag())
+                .body(page.getBody());
     }
 
     /**
@@ -40,8 +65,8 @@ public class CompilationController {
      */
     @GetMapping("/compilations/{compId}")
     @ResponseStatus(HttpStatus.OK)
-    public CompilationDto getCompilationById(@PathVariable long compId) {
-        return compilationService.getCompilationById(compId);
+    public CompletableFuture<CompilationDto> getCompilationById(@PathVariable long compId) {
+        return requestExecutor.submit(() -> compilationService.getCompilationById(compId));
     }
 
     /**
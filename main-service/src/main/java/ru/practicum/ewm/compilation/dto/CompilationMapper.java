@@ -4,7 +4,9 @@ import ru.practicum.ewm.compilation.model.Compilation;
 import ru.practicum.ewm.event.dto.EventMapper;
 import ru.practicum.ewm.event.model.Event;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -18,9 +20,20 @@ public class CompilationMapper {
                 .build();
     }
 
-    public static List<CompilationDto> toCompilationDto(List<Compilation> compilations) {
+    public static CompilationDto toCompilationDto(Compilation compilation, Collection<Event> events) {
+        return CompilationDto.builder()
+                .events(Set.copyOf(EventMapper.toEventShortDto(events)))
+                .id(compilation.getId())
+                .pinned(compilation.getPinned())
+                .title(compilation.getTitle())
+                .build();
+    }
+
+    public static List<CompilationDto> toCompilationDto(List<Compilation> compilations,
+                                                        Map<Long, List<Event>> eventsByCompilationId) {
         return compilations.stream()
-                .map(CompilationMapper::toCompilationDto)
+                .map(compilation -> toCompilationDto(compilation,
+                        eventsByCompilationId.getOrDefault(compilation.getId(), List.of())))
                 .collect(Collectors.toList());
     }
 
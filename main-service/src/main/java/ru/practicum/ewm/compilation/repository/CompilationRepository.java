@@ -2,12 +2,28 @@ package ru.practicum.ewm.compilation.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.compilation.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
     List<Compilation> findAllBy(Pageable pageable);
 
     List<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+
+    List<Compilation> findAllByPinnedOrderByIdAsc(Boolean pinned);
+
+    /**
+     * Method for loading events of several compilations with their relations in one query
+     * @return Method returns pairs of compilation id and event
+     */
+    @Query("SELECT c.id, e FROM Compilation c " +
+            "JOIN c.events e " +
+            "JOIN FETCH e.category " +
+            "JOIN FETCH e.initiator " +
+            "JOIN FETCH e.location " +
+            "WHERE c.id IN ?1")
+    List<Object[]> findEventsByCompilationIdIn(Collection<Long> ids);
 }
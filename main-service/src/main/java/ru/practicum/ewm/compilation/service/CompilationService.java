@@ -9,6 +9,8 @@ import java.util.List;
 public interface CompilationService {
     List<CompilationDto> get(Boolean pinned, int from, int size);
 
+    List<CompilationDto> getAllPinned();
+
     CompilationDto getCompilationById(long id);
 
     CompilationDto create(NewCompilationDto newCompilationDto);
@@ -2,6 +2,7 @@ package ru.practicum.ewm.compilation.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,12 +13,12 @@ import ru.practicum.ewm.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.ewm.compilation.exception.CompilationNotFoundException;
 import ru.practicum.ewm.compilation.model.Compilation;
 import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.compilation.snapshot.CompilationsUpdatedEvent;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.repository.EventRepository;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -25,6 +26,7 @@ import java.util.Set;
 public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Method for getting info about all compilations
@@ -41,7 +43,18 @@ public class CompilationServiceImpl implements CompilationService {
             foundCompilations = compilationRepository.findAllBy(pageRequest);
         }
         log.info("{} compilations were found", foundCompilations.size());
-        return CompilationMapper.toCompilationDto(foundCompilations);
+        return toCompilationDto(foundCompilations);
+    }
+
+    /**
+     * Method for getting info about all pinned compilations
+     * @return Method returns info about pinned compilations ordered by id
+     */
+    @Override
+    public List<CompilationDto> getAllPinned() {
+        List<Compilation> foundCompilations = compilationRepository.findAllByPinnedOrderByIdAsc(true);
+        log.info("{} pinned compilations were found", foundCompilations.size());
+        return toCompilationDto(foundCompilations);
     }
 
     /**
@@ -53,7 +66,7 @@ public class CompilationServiceImpl implements CompilationService {
     public CompilationDto getCompilationById(long id) {
         Compilation compilation = compilationRepository.findById(id).orElseThrow(() -> new CompilationNotFoundException(id));
         log.info("Get compilation with id={}", id);
-        return CompilationMapper.toCompilationDto(compilation);
+        return toCompilationDto(List.of(compilation)).get(0);
     }
 
     /**
@@ -71,6 +84,7 @@ public class CompilationServiceImpl implements CompilationService {
             events = eventRepository.findAllByIdIn(newCompilationDto.getEvents());
         }
         Compilation compilation = compilationRepository.save(CompilationMapper.newCompilationDtoToCompilation(newCompilationDto, events));
+        eventPublisher.publishEvent(new CompilationsUpdatedEvent(compilation.getId()));
         log.info("Created compilation with id={}, title={}", compilation.getId(), compilation.getTitle());
         return CompilationMapper.toCompilationDto(compilation);
     }
@@ -84,6 +98,7 @@ public class CompilationServiceImpl implements CompilationService {
     public void deleteCompilationById(long id) {
         Compilation compilation = compilationRepository.findById(id).orElseThrow(() -> new CompilationNotFoundException(id));
         compilationRepository.deleteById(id);
+        eventPublisher.publishEvent(new CompilationsUpdatedEvent(id));
         log.info("Compilation with id={} was deleted", id);
     }
 
@@ -108,7 +123,25 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setTitle(updateCompilationRequest.getTitle());
         }
         compilationRepository.save(compilation);
+        eventPublisher.publishEvent(new CompilationsUpdatedEvent(id));
         log.info("Compilation with id={} was updated", id);
         return CompilationMapper.toCompilationDto(compilation);
     }
+
+    /**
+     * Method maps compilations loading events of all of them in one query
+     */
+    private List<CompilationDto> toCompilationDto(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = compilations.stream()
+                .map(Compilation::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<Event>> eventsByCompilationId = new HashMap<>();
+        for (Object[] row : compilationRepository.findEventsByCompilationIdIn(ids)) {
+            eventsByCompilationId.computeIfAbsent((Long) row[0], compilationId -> new ArrayList<>()).add((Event) row[1]);
+        }
+        return CompilationMapper.toCompilationDto(compilations, eventsByCompilationId);
+    }
 }
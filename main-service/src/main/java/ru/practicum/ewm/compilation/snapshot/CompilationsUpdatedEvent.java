@@ -0,0 +1,11 @@
+package ru.practicum.ewm.compilation.snapshot;
+
+import lombok.Value;
+
+/**
+ * Application event published when a compilation is created, updated or deleted
+ */
+@Value
+public class CompilationsUpdatedEvent {
+    long compilationId;
+}
@@ -0,0 +1,185 @@
+package ru.practicum.ewm.compilation.snapshot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+import ru.practicum.ewm.compilation.service.CompilationService;
+import ru.practicum.ewm.event.cache.EventUpdatedEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized response of GET /compilations?pinned=true.
+ * Every pinned compilation is kept as JSON bytes, pages are assembled from them without Jackson or the database.
+ * The snapshot is dropped after a change of compilations or of an event of a pinned compilation is committed,
+ * so the next read rebuilds it. Other changes of events are picked up by a rebuild in the background, which also
+ * runs after the snapshot gets older than the configured age, so views and confirmed requests of member events
+ * stay close to current values
+ */
+@Slf4j
+@Component
+public class PinnedCompilationsSnapshot {
+    private static final byte[] EMPTY_ARRAY = "[]".getBytes(StandardCharsets.UTF_8);
+    private final CompilationService compilationService;
+    private final ObjectMapper objectMapper;
+    private final long maxAgeMs;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+    private volatile boolean dirty = true;
+
+    public PinnedCompilationsSnapshot(CompilationService compilationService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${ewm.compilations.snapshot.max-age-ms:60000}") long maxAgeMs) {
+        this.compilationService = compilationService;
+        this.objectMapper = objectMapper;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Method returns a page of pinned compilations
+     * @param from number of compilations to skip, rounded down to a multiple of size as in the paged listing
+     * @param size number of compilations to get
+     */
+    public Page getPage(int from, int size) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = rebuild();
+        }
+        int offset = from / size * size;
+        List<byte[]> compilations = current.getCompilations();
+        if (offset >= compilations.size()) {
+            return new Page(EMPTY_ARRAY, etag(current, offset, size));
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write('[');
+        int end = (int) Math.min(compilations.size(), (long) offset + size);
+        for (int i = offset; i < end; i++) {
+            if (i > offset) {
+                body.write(',');
+            }
+            body.writeBytes(compilations.get(i));
+        }
+        body.write(']');
+        return new Page(body.toByteArray(), etag(current, offset, size));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompilationsUpdated(CompilationsUpdatedEvent compilationsUpdatedEvent) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventUpdated(EventUpdatedEvent eventUpdatedEvent) {
+        Snapshot current = snapshot;
+        if (current != null && current.getEventIds().contains(eventUpdatedEvent.getEventId())) {
+            invalidate();
+        } else {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Method rebuilds the snapshot if it was changed or is too old
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${ewm.compilations.snapshot.rebuild-interval-ms:1000}")
+    public void refresh() {
+        Snapshot current = snapshot;
+        if (dirty || current == null || System.currentTimeMillis() - current.getBuiltAt() > maxAgeMs) {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Failed to rebuild pinned compilations snapshot: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops the snapshot, a rebuild that was running is not published as it may have read the old data
+     */
+    private void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        dirty = true;
+    }
+
+    private synchronized Snapshot rebuild() {
+        // Changes made while the snapshot is built mark it dirty again and get into the next one
+        long startedGeneration = generation.get();
+        dirty = false;
+        List<CompilationDto> pinnedCompilations = compilationService.getAllPinned();
+        List<byte[]> compilations = new ArrayList<>(pinnedCompilations.size());
+        Set<Long> eventIds = new HashSet<>();
+        MessageDigest digest = sha256();
+        for (CompilationDto compilation : pinnedCompilations) {
+            byte[] json = serialize(compilation);
+            compilations.add(json);
+            digest.update(json);
+            compilation.getEvents().forEach(event -> eventIds.add(event.getId()));
+        }
+        Snapshot rebuilt = new Snapshot(List.copyOf(compilations), Set.copyOf(eventIds),
+                Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), 16)),
+                System.currentTimeMillis());
+        if (generation.get() != startedGeneration) {
+            return rebuilt;
+        }
+        snapshot = rebuilt;
+        log.debug("Pinned compilations snapshot was rebuilt with {} compilations", compilations.size());
+        return rebuilt;
+    }
+
+    private byte[] serialize(CompilationDto compilation) {
+        try {
+            return objectMapper.writeValueAsBytes(compilation);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize compilation with id=" + compilation.getId(), e);
+        }
+    }
+
+    private static String etag(Snapshot snapshot, int offset, int size) {
+        return "\"" + snapshot.getVersion() + "-" + offset + "-" + size + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Page {
+        private final byte[] body;
+        private final String etag;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Snapshot {
+        private final List<byte[]> compilations;
+        private final Set<Long> eventIds;
+        private final String version;
+        private final long builtAt;
+    }
+}
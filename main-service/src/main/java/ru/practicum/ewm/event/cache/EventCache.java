@@ -0,0 +1,114 @@
+package ru.practicum.ewm.event.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.view.EventViewCounter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.LongFunction;
+
+/**
+ * Cache of published events shown by GET /events/{id}.
+ * Entries are kept serialized, so every reader gets its own copy of EventFullDto, and are evicted
+ * by size and by time after write. Entries keep the views stored in the database, views flushed since
+ * an entry was loaded and views not flushed yet are added on every read.
+ * Entries are invalidated after a transaction that changed the event is committed
+ */
+@Slf4j
+@Component
+public class EventCache {
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+    private final ObjectMapper objectMapper;
+    private final EventViewCounter eventViewCounter;
+    private final Cache<Long, CachedEvent> events;
+
+    public EventCache(ObjectMapper objectMapper,
+                      EventViewCounter eventViewCounter,
+                      MeterRegistry meterRegistry,
+                      @Value("${ewm.events.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${ewm.events.cache.expire-after-write-ms:60000}") long expireAfterWriteMs) {
+        this.objectMapper = objectMapper;
+        this.eventViewCounter = eventViewCounter;
+        this.events = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, events, "events");
+    }
+
+    /**
+     * Method returns cached event, loading it if it is not cached
+     * @param eventId id of event
+     * @param loader function loading event from the database, views of the loaded event must be
+     *               the views stored in the database only
+     * @return Method returns a copy of cached event with current number of views
+     */
+    public EventFullDto get(long eventId, LongFunction<EventFullDto> loader) {
+        CachedEvent cachedEvent = events.get(eventId, id -> load(id, loader));
+        EventFullDto event = deserialize(cachedEvent.getJson());
+        event.setViews(event.getViews() + eventViewCounter.getFlushedViews(eventId)
+                - cachedEvent.getFlushedViews() + eventViewCounter.getPendingViews(eventId));
+        return event;
+    }
+
+    /**
+     * Method removes changed event from the cache
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventUpdated(EventUpdatedEvent eventUpdatedEvent) {
+        events.invalidate(eventUpdatedEvent.getEventId());
+        log.debug("Event with id={} was removed from the cache", eventUpdatedEvent.getEventId());
+    }
+
+    /**
+     * Loads event together with the number of views flushed before it was read. The event is loaded again
+     * if a flush ran meanwhile, as its views could then be counted both in the database and in the overlay
+     */
+    private CachedEvent load(long eventId, LongFunction<EventFullDto> loader) {
+        for (int attempt = 1; ; attempt++) {
+            long version = eventViewCounter.getFlushVersion();
+            long flushedViews = eventViewCounter.getFlushedViews(eventId);
+            EventFullDto event = loader.apply(eventId);
+            if (version % 2 == 0 && version == eventViewCounter.getFlushVersion() || attempt == MAX_LOAD_ATTEMPTS) {
+                return new CachedEvent(serialize(event), flushedViews);
+            }
+        }
+    }
+
+    private byte[] serialize(EventFullDto event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize event with id=" + event.getId(), e);
+        }
+    }
+
+    private EventFullDto deserialize(byte[] json) {
+        try {
+            return objectMapper.readValue(json, EventFullDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CachedEvent {
+        private final byte[] json;
+        private final long flushedViews;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.ewm.event.cache;
+
+import lombok.Value;
+
+/**
+ * Application event published when data shown in EventFullDto of an event is changed
+ */
+@Value
+public class EventUpdatedEvent {
+    long eventId;
+}
@@ -1,5 +1,7 @@
 package ru.practicum.ewm.event.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
@@ -9,19 +11,30 @@ import ru.practicum.ewm.event.model.AdminSearchParameters;
 import ru.practicum.ewm.event.model.Status;
 import ru.practicum.ewm.event.model.UserSearchParameters;
 import ru.practicum.ewm.event.service.EventService;
+import ru.practicum.ewm.execution.RequestExecutor;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.request.dto.ParticipationRequestDto;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 @Validated
 public class EventController {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String TEXT_CSV = "text/csv";
     private final EventService eventService;
+    private final RequestExecutor requestExecutor;
+    private final ObjectMapper objectMapper;
 
     /**
      * Method for getting info about events added by current user
@@ -30,10 +43,10 @@ public class EventController {
      */
     @GetMapping("/users/{userId}/events")
     @ResponseStatus(HttpStatus.OK)
-    public List<EventShortDto> getEventsAddedByUser(@PathVariable long userId,
-                                                    @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                                                    @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
-        return eventService.getEventsAddedByUser(userId, from, size);
+    public CompletableFuture<List<EventShortDto>> getEventsAddedByUser(@PathVariable long userId,
+                                                                       @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
+                                                                       @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
+        return requestExecutor.submit(() -> eventService.getEventsAddedByUser(userId, from, size));
     }
 
     /**
@@ -57,9 +70,9 @@ public class EventController {
      */
     @GetMapping("/users/{userId}/events/{eventId}")
     @ResponseStatus(HttpStatus.OK)
-    public EventFullDto getEventByAuthor(@PathVariable long userId,
-                                         @PathVariable long eventId) {
-        return eventService.getEventByAuthor(userId, eventId);
+    public CompletableFuture<EventFullDto> getEventByAuthor(@PathVariable long userId,
+                                                            @PathVariable long eventId) {
+        return requestExecutor.submit(() -> eventService.getEventByAuthor(userId, eventId));
     }
 
     /**
@@ -85,9 +98,10 @@ public class EventController {
      */
     @GetMapping("/users/{userId}/events/{eventId}/requests")
     @ResponseStatus(HttpStatus.OK)
-    public List<ParticipationRequestDto> getRequestsForEventOfCurrentUser(@PathVariable long userId,
-                                                                          @PathVariable long eventId) {
-        return eventService.getRequestsForEventOfCurrentUser(userId, eventId);
+    public CompletableFuture<List<ParticipationRequestDto>> getRequestsForEventOfCurrentUser(
+            @PathVariable long userId,
+            @PathVariable long eventId) {
+        return requestExecutor.submit(() -> eventService.getRequestsForEventOfCurrentUser(userId, eventId));
     }
 
     /**
@@ -107,18 +121,61 @@ public class EventController {
 
     /**
      * Method for getting events by admin by multiple parameters
+     * @param cursor cursor from X-Next-Cursor header of the previous page, from is ignored if it is set
      * @return Method returns info about events
      */
     @GetMapping("/admin/events")
     @ResponseStatus(HttpStatus.OK)
-    public List<EventFullDto> getEventsByAdmin(@RequestParam(name = "users", required = false) List<Long> users,
-                                               @RequestParam(name = "states", required = false) List<Status> states,
-                                               @RequestParam(name = "categories", required = false) List<Long> categories,
-                                               @RequestParam(name = "rangeStart", required = false) String rangeStart,
-                                               @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
-                                               @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                                               @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
-        return eventService.getEventsByAdmin(new AdminSearchParameters(users, states, categories, rangeStart, rangeEnd, from, size));
+    public CompletableFuture<List<EventFullDto>> getEventsByAdmin(@RequestParam(name = "users", required = false) List<Long> users,
+                                                                  @RequestParam(name = "states", required = false) List<Status> states,
+                                                                  @RequestParam(name = "categories", required = false) List<Long> categories,
+                                                                  @RequestParam(name = "rangeStart", required = false) String rangeStart,
+                                                                  @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
+                                                                  @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
+                                                                  @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+                                                                  @RequestParam(name = "cursor", required = false) String cursor,
+                                                                  HttpServletResponse response) {
+        return requestExecutor.submit(() -> {
+            CursorPage<EventFullDto> page = eventService.getEventsByAdmin(new AdminSearchParameters(users, states,
+                    categories, rangeStart, rangeEnd, from, size, cursor));
+            if (page.getNextCursor() != null) {
+                response.setHeader(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return page.getItems();
+        });
+    }
+
+    /**
+     * Method for exporting all events matching the admin parameters as NDJSON, one event per line,
+     * events are written while they are read from the database
+     */
+    @GetMapping(value = "/admin/events", produces = APPLICATION_NDJSON)
+    public void exportEventsByAdminAsNdjson(@RequestParam(name = "users", required = false) List<Long> users,
+                                            @RequestParam(name = "states", required = false) List<Status> states,
+                                            @RequestParam(name = "categories", required = false) List<Long> categories,
+                                            @RequestParam(name = "rangeStart", required = false) String rangeStart,
+                                            @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
+                                            HttpServletResponse response) throws IOException {
+        export(toExportParameters(users, states, categories, rangeStart, rangeEnd),
+                new EventExportResponse<SequenceWriter>(response, APPLICATION_NDJSON,
+                        outputStream -> objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream),
+                        SequenceWriter::write));
+    }
+
+    /**
+     * Method for exporting all events matching the admin parameters as CSV with a header row,
+     * events are written while they are read from the database
+     */
+    @GetMapping(value = "/admin/events", produces = TEXT_CSV)
+    public void exportEventsByAdminAsCsv(@RequestParam(name = "users", required = false) List<Long> users,
+                                         @RequestParam(name = "states", required = false) List<Status> states,
+                                         @RequestParam(name = "categories", required = false) List<Long> categories,
+                                         @RequestParam(name = "rangeStart", required = false) String rangeStart,
+                                         @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
+                                         HttpServletResponse response) throws IOException {
+        export(toExportParameters(users, states, categories, rangeStart, rangeEnd),
+                new EventExportResponse<EventCsvWriter>(response, TEXT_CSV + ";charset=UTF-8", EventCsvWriter::new,
+                        EventCsvWriter::write));
     }
 
     /**
@@ -136,22 +193,36 @@ public class EventController {
 
     /**
      * Method for getting events by user by multiple parameters
+     * @param cursor cursor from X-Next-Cursor header of the previous page, from is ignored if it is set
+     * @param radius distance in kilometres from the point (lat, lon), events are searched within it
+     *               if it is set together with lat and lon
      * @return Method returns info about events
      */
     @GetMapping("/events")
     @ResponseStatus(HttpStatus.OK)
-    public List<EventShortDto> get(@RequestParam(name = "text", required = false) String text,
-                                   @RequestParam(name = "categories", required = false) List<Long> categories,
-                                   @RequestParam(name = "paid", required = false) Boolean paid,
-                                   @RequestParam(name = "rangeStart", required = false) String rangeStart,
-                                   @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
-                                   @RequestParam(name = "onlyAvailable", defaultValue = "false") Boolean onlyAvailable,
-                                   @RequestParam(name = "sort", defaultValue = "VIEWS") String sort,
-                                   @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                                   @Positive @RequestParam(name = "size", defaultValue = "10") int size,
-                                   HttpServletRequest request) {
-        return eventService.get(new UserSearchParameters(text, categories, paid, rangeStart, rangeEnd, onlyAvailable,
-                sort, from, size), request);
+    public CompletableFuture<List<EventShortDto>> get(@RequestParam(name = "text", required = false) String text,
+                                                      @RequestParam(name = "categories", required = false) List<Long> categories,
+                                                      @RequestParam(name = "paid", required = false) Boolean paid,
+                                                      @RequestParam(name = "rangeStart", required = false) String rangeStart,
+                                                      @RequestParam(name = "rangeEnd", required = false) String rangeEnd,
+                                                      @RequestParam(name = "onlyAvailable", defaultValue = "false") Boolean onlyAvailable,
+                                                      @RequestParam(name = "sort", defaultValue = "VIEWS") String sort,
+                                                      @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
+                                                      @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+                                                      @RequestParam(name = "cursor", required = false) String cursor,
+                                                      @DecimalMin("-90") @DecimalMax("90") @RequestParam(name = "lat", required = false) Double lat,
+                                                      @DecimalMin("-180") @DecimalMax("180") @RequestParam(name = "lon", required = false) Double lon,
+                                                      @Positive @DecimalMax("100") @RequestParam(name = "radius", required = false) Double radius,
+                                                      HttpServletRequest request,
+                                                      HttpServletResponse response) {
+        return requestExecutor.submit(() -> {
+            CursorPage<EventShortDto> page = eventService.get(new UserSearchParameters(text, categories, paid,
+                    rangeStart, rangeEnd, onlyAvailable, sort, from, size, cursor, lat, lon, radius), request);
+            if (page.getNextCursor() != null) {
+                response.setHeader(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return page.getItems();
+        });
     }
 
     /**
@@ -161,8 +232,26 @@ public class EventController {
      */
     @GetMapping("/events/{id}")
     @ResponseStatus(HttpStatus.OK)
-    public EventFullDto getEventById(@PathVariable long id,
-                                     HttpServletRequest request) {
-        return eventService.getEventById(id, request);
+    public CompletableFuture<EventFullDto> getEventById(@PathVariable long id,
+                                                        HttpServletRequest request) {
+        return requestExecutor.submit(() -> eventService.getEventById(id, request));
+    }
+
+    /**
+     * Method streams the export into the response, which is opened only after the parameters are validated
+     * and the first event is read, so only errors raised before streaming starts get an error status
+     */
+    private void export(AdminSearchParameters parameters, EventExportResponse<?> exportResponse) throws IOException {
+        try {
+            eventService.exportEventsByAdmin(parameters, exportResponse);
+            exportResponse.finish();
+        } finally {
+            exportResponse.close();
+        }
+    }
+
+    private AdminSearchParameters toExportParameters(List<Long> users, List<Status> states, List<Long> categories,
+                                                     String rangeStart, String rangeEnd) {
+        return new AdminSearchParameters(users, states, categories, rangeStart, rangeEnd, 0, 0, null);
     }
 }
@@ -0,0 +1,79 @@
+package ru.practicum.ewm.event.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import ru.practicum.ewm.event.dto.EventFullDto;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Body of an export of events. The output stream of the response is opened only when the first event is written
+ * or the export is finished, so errors raised before that, like bad parameters, get the usual error response.
+ * After streaming has started the status is already sent, and an error only ends the body early
+ * @param <W> type of writer of the export format
+ */
+class EventExportResponse<W extends Closeable> implements Consumer<EventFullDto>, Closeable {
+    private final HttpServletResponse response;
+    private final String contentType;
+    private final Opener<W> opener;
+    private final EventWriter<W> eventWriter;
+    private W writer;
+
+    EventExportResponse(HttpServletResponse response, String contentType, Opener<W> opener,
+                        EventWriter<W> eventWriter) {
+        // The error handler writes JSON, which the Accept header of an export would not allow otherwise
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        this.response = response;
+        this.contentType = contentType;
+        this.opener = opener;
+        this.eventWriter = eventWriter;
+    }
+
+    @Override
+    public void accept(EventFullDto event) {
+        try {
+            eventWriter.write(open(), event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Method opens the body if no event was written, so an empty export still gets its status and header
+     */
+    public void finish() throws IOException {
+        open();
+    }
+
+    /**
+     * Method closes the writer if the body was opened, an export that failed before is left to the error handler
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private W open() throws IOException {
+        if (writer == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(contentType);
+            writer = opener.open(response.getOutputStream());
+        }
+        return writer;
+    }
+
+    interface Opener<W> {
+        W open(OutputStream outputStream) throws IOException;
+    }
+
+    interface EventWriter<W> {
+        void write(W writer, EventFullDto event) throws IOException;
+    }
+}
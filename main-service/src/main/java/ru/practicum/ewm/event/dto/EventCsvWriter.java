@@ -0,0 +1,56 @@
+package ru.practicum.ewm.event.dto;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer of events in CSV format (RFC 4180), one event per row after a header row
+ */
+public class EventCsvWriter implements Closeable {
+    private static final String[] HEADER = {"id", "title", "annotation", "description", "categoryId", "categoryName",
+            "initiatorId", "initiatorName", "state", "eventDate", "createdOn", "publishedOn", "paid",
+            "participantLimit", "confirmedRequests", "requestModeration", "views", "lat", "lon"};
+    private final Writer writer;
+
+    public EventCsvWriter(OutputStream outputStream) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeRow((Object[]) HEADER);
+    }
+
+    public void write(EventFullDto event) throws IOException {
+        writeRow(event.getId(), event.getTitle(), event.getAnnotation(), event.getDescription(),
+                event.getCategory() == null ? null : event.getCategory().getId(),
+                event.getCategory() == null ? null : event.getCategory().getName(),
+                event.getInitiator() == null ? null : event.getInitiator().getId(),
+                event.getInitiator() == null ? null : event.getInitiator().getName(),
+                event.getState(), event.getEventDate(), event.getCreatedOn(), event.getPublishedOn(), event.getPaid(),
+                event.getParticipantLimit(), event.getConfirmedRequests(), event.getRequestModeration(),
+                event.getViews(),
+                event.getLocation() == null ? null : event.getLocation().getLat(),
+                event.getLocation() == null ? null : event.getLocation().getLon());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeRow(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(escape(values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.ewm.event.dto;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import ru.practicum.ewm.category.dto.CategoryDto;
 import ru.practicum.ewm.location.model.Location;
 import ru.practicum.ewm.user.dto.UserShortDto;
@@ -10,6 +11,7 @@ import ru.practicum.ewm.user.dto.UserShortDto;
 @Data
 @Builder
 @AllArgsConstructor
+@NoArgsConstructor
 public class EventFullDto {
     private String annotation;
     private CategoryDto category;
@@ -0,0 +1,12 @@
+package ru.practicum.ewm.event.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class BadSearchAreaException extends RuntimeException {
+    public BadSearchAreaException(Double lat, Double lon, Double radius) {
+        super(String.format("Search area must have lat, lon and radius, got lat=%s, lon=%s, radius=%s",
+                lat, lon, radius));
+        log.error("Search area must have lat, lon and radius, got lat={}, lon={}, radius={}", lat, lon, radius);
+    }
+}
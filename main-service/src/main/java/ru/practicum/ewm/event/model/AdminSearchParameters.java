@@ -15,4 +15,5 @@ public class AdminSearchParameters {
     private String rangeEnd;
     private int from;
     private int size;
+    private String cursor;
 }
@@ -17,7 +17,17 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "events")
+@NamedEntityGraph(name = Event.WITH_RELATIONS, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("initiator"),
+        @NamedAttributeNode("location")
+})
 public class Event {
+    /**
+     * Entity graph loading everything EventMapper needs in the same query as the events
+     */
+    public static final String WITH_RELATIONS = "Event.withRelations";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
@@ -27,7 +37,7 @@ public class Event {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
-    @Column(name = "confirmed_requests")
+    @Column(name = "confirmed_requests", updatable = false)
     private Long confirmedRequests;
     @Column(name = "created_on")
     private LocalDateTime createdOn;
@@ -54,6 +64,6 @@ public class Event {
     private Status state;
     @Column(name = "title")
     private String title;
-    @Column(name = "views")
+    @Column(name = "views", updatable = false)
     private Long views;
 }
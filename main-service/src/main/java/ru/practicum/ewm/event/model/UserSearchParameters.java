@@ -17,4 +17,8 @@ public class UserSearchParameters {
     private String sort;
     private int from;
     private int size;
+    private String cursor;
+    private Double lat;
+    private Double lon;
+    private Double radius;
 }
@@ -1,33 +1,78 @@
 package ru.practicum.ewm.event.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.Status;
+import ru.practicum.ewm.location.model.SearchArea;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface EventRepository extends JpaRepository<Event, Long>, EventRepositoryCustom {
+    int EXPORT_FETCH_SIZE = 500;
+    /**
+     * Condition of user searches on the location of events, the area is a parameter named area.
+     * Locations are read by the index on quantised coordinates within the bounding box of the area,
+     * and the number of query parameters does not depend on the number of locations in the area
+     */
+    String IN_SEARCH_AREA = "(:#{#area.anywhere} = true OR EXISTS (SELECT l.id FROM Location l " +
+            "WHERE l.id = e.location.id " +
+            "AND l.latQ BETWEEN :#{#area.minLatQ} AND :#{#area.maxLatQ} " +
+            "AND l.lonQ BETWEEN :#{#area.minLonQ} AND :#{#area.maxLonQ} " +
+            "AND haversine(l.lat, l.lon, :#{#area.lat}, :#{#area.lon}, :#{#area.cosLat}) " +
+            "<= :#{#area.maxHaversine})) ";
 
-public interface EventRepository extends JpaRepository<Event, Long> {
     List<Event> findAllByCategoryId(long id);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     Set<Event> findAllByIdIn(List<Long> ids);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     List<Event> findAllByInitiatorId(long userId, Pageable pageable);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     @Query("SELECT e FROM Event e " +
             "WHERE (e.initiator.id IN ?1 OR ?1 IS NULL) " +
             "AND (e.state IN ?2 OR ?2 IS NULL) " +
             "AND (e.category.id IN ?3 OR ?3 IS NULL) " +
             "AND (e.eventDate > ?4 OR CAST (?4 AS timestamp) IS NULL) " +
             "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
-            "ORDER BY e.eventDate ASC")
+            "AND (e.eventDate > ?6 OR (e.eventDate = ?6 AND e.id > ?7) OR CAST (?6 AS timestamp) IS NULL) " +
+            "ORDER BY e.eventDate ASC, e.id ASC")
     List<Event> findAllByAdmin(List<Long> users, List<Status> states, List<Long> categories, LocalDateTime rangeStart,
-                               LocalDateTime rangeEnd, Pageable pageable);
+                               LocalDateTime rangeEnd, LocalDateTime afterEventDate, long afterId, Pageable pageable);
+
+    /**
+     * Method for reading events by admin through a forward-only database cursor,
+     * the stream must be consumed and closed inside a transaction
+     */
+    @EntityGraph(Event.WITH_RELATIONS)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT e FROM Event e " +
+            "WHERE (e.initiator.id IN ?1 OR ?1 IS NULL) " +
+            "AND (e.state IN ?2 OR ?2 IS NULL) " +
+            "AND (e.category.id IN ?3 OR ?3 IS NULL) " +
+            "AND (e.eventDate > ?4 OR CAST (?4 AS timestamp) IS NULL) " +
+            "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
+            "ORDER BY e.eventDate ASC, e.id ASC")
+    Stream<Event> streamAllByAdmin(List<Long> users, List<Status> states, List<Long> categories,
+                                   LocalDateTime rangeStart, LocalDateTime rangeEnd);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     @Query("SELECT e FROM Event e " +
             "WHERE ((lower(e.annotation) like lower(concat('%', ?1, '%'))) " +
             "OR (lower(e.description) like lower(concat('%', ?1, '%'))) " +
@@ -38,10 +83,14 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
             "AND (e.confirmedRequests < e.participantLimit OR e.participantLimit = 0 OR ?6 = false) " +
             "AND (e.state = 'PUBLISHED') " +
-            "ORDER BY e.eventDate ASC")
+            "AND " + IN_SEARCH_AREA +
+            "AND (e.eventDate > ?7 OR (e.eventDate = ?7 AND e.id > ?8) OR CAST (?7 AS timestamp) IS NULL) " +
+            "ORDER BY e.eventDate ASC, e.id ASC")
     List<Event> findAllByUserSortByEventDate(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                              LocalDateTime rangeEnd, Boolean onlyAvailable, Pageable pageable);
+                              LocalDateTime rangeEnd, Boolean onlyAvailable, LocalDateTime afterEventDate,
+                              long afterId, @Param("area") SearchArea area, Pageable pageable);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     @Query("SELECT e FROM Event e " +
             "WHERE ((lower(e.annotation) like lower(concat('%', ?1, '%'))) " +
             "OR (lower(e.description) like lower(concat('%', ?1, '%'))) " +
@@ -52,9 +101,79 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
             "AND (e.confirmedRequests < e.participantLimit OR e.participantLimit = 0 OR ?6 = false) " +
             "AND (e.state = 'PUBLISHED') " +
-            "ORDER BY e.views DESC")
+            "AND " + IN_SEARCH_AREA +
+            "AND (e.views < ?7 OR (e.views = ?7 AND e.id > ?8)) " +
+            "ORDER BY e.views DESC, e.id ASC")
     List<Event> findAllByUserSortByViews(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart,
-                                             LocalDateTime rangeEnd, Boolean onlyAvailable, Pageable pageable);
+                                             LocalDateTime rangeEnd, Boolean onlyAvailable, long afterViews,
+                                             long afterId, @Param("area") SearchArea area, Pageable pageable);
+
+    @EntityGraph(Event.WITH_RELATIONS)
+    @Query("SELECT e FROM Event e " +
+            "WHERE fts_match(e.annotation, e.description, ?1) = true " +
+            "AND (e.category.id IN ?2 OR ?2 IS NULL) " +
+            "AND (e.paid IS ?3 OR ?3 IS NULL) " +
+            "AND (e.eventDate > ?4 OR CAST (?4 AS timestamp) IS NULL) " +
+            "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
+            "AND (e.confirmedRequests < e.participantLimit OR e.participantLimit = 0 OR ?6 = false) " +
+            "AND (e.state = 'PUBLISHED') " +
+            "AND " + IN_SEARCH_AREA +
+            "AND (e.eventDate > ?7 OR (e.eventDate = ?7 AND e.id > ?8) OR CAST (?7 AS timestamp) IS NULL) " +
+            "ORDER BY e.eventDate ASC, e.id ASC")
+    List<Event> findAllByTextSortByEventDate(String query, List<Long> categories, Boolean paid,
+                                             LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                             Boolean onlyAvailable, LocalDateTime afterEventDate, long afterId,
+                                             @Param("area") SearchArea area, Pageable pageable);
+
+    @EntityGraph(Event.WITH_RELATIONS)
+    @Query("SELECT e FROM Event e " +
+            "WHERE fts_match(e.annotation, e.description, ?1) = true " +
+            "AND (e.category.id IN ?2 OR ?2 IS NULL) " +
+            "AND (e.paid IS ?3 OR ?3 IS NULL) " +
+            "AND (e.eventDate > ?4 OR CAST (?4 AS timestamp) IS NULL) " +
+            "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
+            "AND (e.confirmedRequests < e.participantLimit OR e.participantLimit = 0 OR ?6 = false) " +
+            "AND (e.state = 'PUBLISHED') " +
+            "AND " + IN_SEARCH_AREA +
+            "AND (e.views < ?7 OR (e.views = ?7 AND e.id > ?8)) " +
+            "ORDER BY e.views DESC, e.id ASC")
+    List<Event> findAllByTextSortByViews(String query, List<Long> categories, Boolean paid,
+                                         LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                         Boolean onlyAvailable, long afterViews, long afterId,
+                                         @Param("area") SearchArea area, Pageable pageable);
+
+    @EntityGraph(Event.WITH_RELATIONS)
+    @Query("SELECT e FROM Event e " +
+            "WHERE fts_match(e.annotation, e.description, ?1) = true " +
+            "AND (e.category.id IN ?2 OR ?2 IS NULL) " +
+            "AND (e.paid IS ?3 OR ?3 IS NULL) " +
+            "AND (e.eventDate > ?4 OR CAST (?4 AS timestamp) IS NULL) " +
+            "AND (e.eventDate < ?5 OR CAST (?5 AS timestamp) IS NULL) " +
+            "AND (e.confirmedRequests < e.participantLimit OR e.participantLimit = 0 OR ?6 = false) " +
+            "AND (e.state = 'PUBLISHED') " +
+            "AND " + IN_SEARCH_AREA +
+            "ORDER BY fts_rank(e.annotation, e.description, ?1) DESC, e.id ASC")
+    List<Event> findAllByTextSortByRelevance(String query, List<Long> categories, Boolean paid,
+                                             LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                             Boolean onlyAvailable, @Param("area") SearchArea area, Pageable pageable);
 
+    @EntityGraph(Event.WITH_RELATIONS)
     Optional<Event> findByIdAndState(long id, Status status);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Event e WHERE e.id = ?1")
+    Optional<Event> findByIdForUpdate(long id);
+
+    /**
+     * Method for taking a seat of an event in one conditional update, so concurrent requests cannot oversell it
+     * @return Method returns 1 if a seat was taken and 0 if the event is full
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + 1 " +
+            "WHERE e.id = ?1 AND (e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit)")
+    int reserveSeat(long eventId);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + ?2 WHERE e.id = ?1")
+    int addConfirmedRequests(long eventId, long count);
 }
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.event.repository;
+
+import java.util.Map;
+
+public interface EventRepositoryCustom {
+    void addViews(Map<Long, Long> viewsByEventId);
+}
@@ -0,0 +1,29 @@
+package ru.practicum.ewm.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class EventRepositoryCustomImpl implements EventRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Method increments views of events in batched JDBC updates, events are updated in id order
+     * so concurrent flushes lock rows in the same order
+     */
+    @Override
+    public void addViews(Map<Long, Long> viewsByEventId) {
+        List<Map.Entry<Long, Long>> increments = new ArrayList<>(viewsByEventId.entrySet());
+        increments.sort(Map.Entry.comparingByKey());
+        jdbcTemplate.batchUpdate("UPDATE events SET views = views + ? WHERE id = ?",
+                increments, BATCH_SIZE, (ps, increment) -> {
+                    ps.setLong(1, increment.getValue());
+                    ps.setLong(2, increment.getKey());
+                });
+    }
+}
@@ -3,10 +3,12 @@ package ru.practicum.ewm.event.service;
 import ru.practicum.ewm.event.dto.*;
 import ru.practicum.ewm.event.model.AdminSearchParameters;
 import ru.practicum.ewm.event.model.UserSearchParameters;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.request.dto.ParticipationRequestDto;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EventService {
     List<EventShortDto> getEventsAddedByUser(long userId, int from, int size);
@@ -22,11 +24,13 @@ public interface EventService {
     EventRequestStatusUpdateResult setStatusForRequestsByCurrentUser(long userId, long eventId,
                                                                      EventRequestStatusUpdateRequest request);
 
-    List<EventFullDto> getEventsByAdmin(AdminSearchParameters adminSearchParameters);
+    CursorPage<EventFullDto> getEventsByAdmin(AdminSearchParameters adminSearchParameters);
+
+    void exportEventsByAdmin(AdminSearchParameters adminSearchParameters, Consumer<EventFullDto> consumer);
 
     EventFullDto updateEventByAdmin(long eventId, UpdateEventAdminRequest updateEventAdminRequest);
 
-    List<EventShortDto> get(UserSearchParameters userSearchParameters, HttpServletRequest request);
+    CursorPage<EventShortDto> get(UserSearchParameters userSearchParameters, HttpServletRequest request);
 
     EventFullDto getEventById(long id, HttpServletRequest request);
 }
@@ -1,46 +1,76 @@
 package ru.practicum.ewm.event.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.ewm.category.exception.CategoryNotFoundException;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.category.repository.CategoryRepository;
-import ru.practicum.ewm.client.StatsClient;
+import ru.practicum.ewm.client.StatsHitPublisher;
+import ru.practicum.ewm.event.cache.EventCache;
+import ru.practicum.ewm.event.cache.EventUpdatedEvent;
 import ru.practicum.ewm.event.dto.*;
 import ru.practicum.ewm.event.exception.*;
 import ru.practicum.ewm.event.model.*;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.view.EventViewCounter;
+import ru.practicum.ewm.event.view.UniqueViewRegistry;
+import ru.practicum.ewm.execution.FanOutExecutor;
+import ru.practicum.ewm.execution.FanOutExecutor.Fork;
 import ru.practicum.ewm.location.model.Location;
-import ru.practicum.ewm.location.repository.LocationRepository;
+import ru.practicum.ewm.location.model.SearchArea;
+import ru.practicum.ewm.location.registry.LocationRegistry;
+import ru.practicum.ewm.pagination.Cursor;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.request.dto.ParticipationRequestDto;
 import ru.practicum.ewm.request.dto.ParticipationRequestMapper;
+import ru.practicum.ewm.request.exception.RequestNotFoundException;
 import ru.practicum.ewm.request.model.ParticipationRequest;
 import ru.practicum.ewm.request.repository.RequestRepository;
 import ru.practicum.ewm.user.exception.UserNotFoundException;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
 
+import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "ewm.service", histogram = true)
 public class EventServiceImpl implements EventService {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final LocationRepository locationRepository;
+    private final LocationRegistry locationRegistry;
     private final RequestRepository requestRepository;
-    private final StatsClient client;
+    private final StatsHitPublisher hitPublisher;
+    private final UniqueViewRegistry uniqueViewRegistry;
+    private final EventViewCounter eventViewCounter;
+    private final EventCache eventCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final FanOutExecutor fanOut;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Method for getting info about events added by current user
@@ -63,12 +93,33 @@ public class EventServiceImpl implements EventService {
      * @return Method returns the created event
      */
     @Override
-    @Transactional
     public EventFullDto create(long userId, NewEventDto newEventDto) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Category category = checkEventCategory(newEventDto.getCategory());
-        checkEventDate(LocalDateTime.parse(newEventDto.getEventDate(), FORMATTER));
-        Location location = checkEventLocation(newEventDto.getLocation());
+        // Lookups are joined before the transaction, so this thread holds no connection while it waits for them
+        Fork<User> foundUser = fanOut.fork(() -> userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId)));
+        Fork<Category> foundCategory = fanOut.fork(() -> checkEventCategory(newEventDto.getCategory()));
+        Fork<Optional<Location>> savedLocation = fanOut.fork(() -> locationRegistry.find(newEventDto.getLocation()));
+        User user;
+        Category category;
+        Optional<Location> location;
+        try {
+            user = foundUser.join();
+            category = foundCategory.join();
+            checkEventDate(LocalDateTime.parse(newEventDto.getEventDate(), FORMATTER));
+            location = savedLocation.join();
+        } catch (RuntimeException e) {
+            cancel(foundCategory, savedLocation);
+            throw e;
+        }
+        return transactionTemplate.execute(status -> saveEvent(user, category, location, newEventDto));
+    }
+
+    /**
+     * Method saves a new event and its location if the location is not saved yet
+     */
+    private EventFullDto saveEvent(User user, Category category, Optional<Location> savedLocation,
+                                   NewEventDto newEventDto) {
+        Location location = savedLocation.orElseGet(() -> locationRegistry.save(newEventDto.getLocation()));
         Event event = eventRepository.save(EventMapper.newEventDtoToEvent(user, category, location, newEventDto));
         log.info("Created event with id={}, title={}", event.getId(), event.getTitle());
         return EventMapper.toEventFullDto(event);
@@ -96,9 +147,32 @@ public class EventServiceImpl implements EventService {
      * @return Method returns the updated event
      */
     @Override
-    @Transactional
     public EventFullDto updateEventByAuthor(long userId, long eventId, UpdateEventUserRequest request) {
-        userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        // Lookups are joined before the transaction, so this thread holds no connection while it waits for them
+        Fork<User> foundUser = fanOut.fork(() -> userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId)));
+        Fork<Category> foundCategory = request.getCategory() == null ? null
+                : fanOut.fork(() -> checkEventCategory(request.getCategory()));
+        Fork<Optional<Location>> savedLocation = request.getLocation() == null ? null
+                : fanOut.fork(() -> locationRegistry.find(request.getLocation()));
+        Category category;
+        Optional<Location> location;
+        try {
+            foundUser.join();
+            category = foundCategory == null ? null : foundCategory.join();
+            location = savedLocation == null ? Optional.empty() : savedLocation.join();
+        } catch (RuntimeException e) {
+            cancel(foundCategory, savedLocation);
+            throw e;
+        }
+        return transactionTemplate.execute(status -> updateEvent(userId, eventId, request, category, location));
+    }
+
+    /**
+     * Method applies the update to the event, the category and the saved location are looked up beforehand
+     */
+    private EventFullDto updateEvent(long userId, long eventId, UpdateEventUserRequest request, Category category,
+                                     Optional<Location> savedLocation) {
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
         if (event.getInitiator().getId() != userId) {
             throw new UserIsNotInitiatorException(userId, eventId);
@@ -109,8 +183,7 @@ public class EventServiceImpl implements EventService {
         if (request.getAnnotation() != null) {
             event.setAnnotation(request.getAnnotation());
         }
-        if (request.getCategory() != null) {
-            Category category = checkEventCategory(request.getCategory());
+        if (category != null) {
             event.setCategory(category);
         }
         if (request.getDescription() != null) {
@@ -121,8 +194,7 @@ public class EventServiceImpl implements EventService {
             event.setEventDate(LocalDateTime.parse(request.getEventDate(), FORMATTER));
         }
         if (request.getLocation() != null) {
-            Location location = checkEventLocation(request.getLocation());
-            event.setLocation(location);
+            event.setLocation(savedLocation.orElseGet(() -> locationRegistry.save(request.getLocation())));
         }
         if (request.getPaid() != null) {
             event.setPaid(request.getPaid());
@@ -152,6 +224,7 @@ public class EventServiceImpl implements EventService {
             event.setTitle(request.getTitle());
         }
         event = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventUpdatedEvent(eventId));
         log.info("Event with id={}, title={} was updated", event.getId(), event.getTitle());
         return EventMapper.toEventFullDto(event);
     }
@@ -185,51 +258,71 @@ public class EventServiceImpl implements EventService {
     @Transactional
     public EventRequestStatusUpdateResult setStatusForRequestsByCurrentUser(long userId, long eventId, EventRequestStatusUpdateRequest request) {
         userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
-        Event event = eventRepository.findById(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
+        // The event row stays locked until commit, so seats cannot be taken by concurrent requests meanwhile
+        Event event = eventRepository.findByIdForUpdate(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
         if (event.getParticipantLimit() != 0L && event.getParticipantLimit() <= event.getConfirmedRequests()) {
             throw new ParticipantLimitIsFullException();
         }
         if (event.getInitiator().getId() != userId) {
             throw new UserIsNotInitiatorException(userId, eventId);
         }
-        List<ParticipationRequest> foundRequests = requestRepository.findAllByIdIn(request.getRequestIds());
-        List<ParticipationRequest> confirmedRequests = new ArrayList<>();
-        List<ParticipationRequest> rejectedRequests = new ArrayList<>();
+        Status status;
         try {
-            if (Status.valueOf(request.getStatus()).equals(Status.REJECTED)) {
-                for (ParticipationRequest participationRequest : foundRequests) {
-                    if (!participationRequest.getStatus().equals(Status.PENDING)) {
-                        throw new StatusNotPendingException();
-                    }
-                    rejectedRequests.add(participationRequest);
-                    participationRequest.setStatus(Status.REJECTED);
-                }
-            } else if (Status.valueOf(request.getStatus()).equals(Status.CONFIRMED)) {
-                for (ParticipationRequest participationRequest : foundRequests) {
-                    if (!participationRequest.getStatus().equals(Status.PENDING)) {
-                        throw new StatusNotPendingException();
-                    }
-                    if (event.getConfirmedRequests() < event.getParticipantLimit() || event.getParticipantLimit() == 0L) {
-                        confirmedRequests.add(participationRequest);
-                        participationRequest.setStatus(Status.CONFIRMED);
-                        event.setConfirmedRequests(event.getConfirmedRequests() + 1L);
-                    } else {
-                        rejectedRequests.add(participationRequest);
-                        participationRequest.setStatus(Status.REJECTED);
-                    }
-                }
-            } else {
-                throw new StatusNotConfirmedOrRejectedException();
-            }
+            status = Status.valueOf(request.getStatus());
         } catch (IllegalArgumentException e) {
             throw new InvalidStatusException(request.getStatus());
         }
-        eventRepository.save(event);
-        requestRepository.saveAll(foundRequests);
+        if (!status.equals(Status.CONFIRMED) && !status.equals(Status.REJECTED)) {
+            throw new StatusNotConfirmedOrRejectedException();
+        }
+        List<Long> requestIds = request.getRequestIds() == null
+                ? List.of()
+                : new ArrayList<>(new LinkedHashSet<>(request.getRequestIds()));
+        List<ParticipationRequestDto> requests = requestRepository.findDtosByIdInAndEventId(requestIds, eventId);
+        if (requests.stream().anyMatch(found -> found.getStatus() != Status.PENDING)) {
+            throw new StatusNotPendingException();
+        }
+        // Ids of requests to other events or of no requests at all reject the whole update
+        if (requests.size() != requestIds.size()) {
+            Set<Long> foundIds = requests.stream().map(ParticipationRequestDto::getId).collect(Collectors.toSet());
+            throw new RequestNotFoundException(requestIds.stream()
+                    .filter(id -> !foundIds.contains(id))
+                    .findFirst()
+                    .orElseThrow());
+        }
+        List<ParticipationRequestDto> confirmedRequests = new ArrayList<>();
+        List<ParticipationRequestDto> rejectedRequests = new ArrayList<>();
+        long freeSeats = event.getParticipantLimit() == 0L
+                ? Long.MAX_VALUE
+                : event.getParticipantLimit() - event.getConfirmedRequests();
+        for (ParticipationRequestDto pending : requests) {
+            if (status.equals(Status.CONFIRMED) && confirmedRequests.size() < freeSeats) {
+                pending.setStatus(Status.CONFIRMED);
+                confirmedRequests.add(pending);
+            } else {
+                pending.setStatus(Status.REJECTED);
+                rejectedRequests.add(pending);
+            }
+        }
+        List<Long> confirmedIds = ids(confirmedRequests);
+        List<Long> rejectedIds = ids(rejectedRequests);
+        if (!confirmedIds.isEmpty()) {
+            requestRepository.updateStatus(confirmedIds, eventId, Status.PENDING, Status.CONFIRMED);
+        }
+        if (!rejectedIds.isEmpty()) {
+            requestRepository.updateStatus(rejectedIds, eventId, Status.PENDING, Status.REJECTED);
+        }
+        if (!confirmedIds.isEmpty()) {
+            eventRepository.addConfirmedRequests(eventId, confirmedIds.size());
+        }
+        eventPublisher.publishEvent(new EventUpdatedEvent(eventId));
         log.info("{} requests were confirmed, {} requests were rejected for event with id={}, title={}",
-                confirmedRequests.size(), rejectedRequests.size(), event.getId(), event.getTitle());
-        return new EventRequestStatusUpdateResult(ParticipationRequestMapper.toParticipationRequestDto(confirmedRequests),
-                ParticipationRequestMapper.toParticipationRequestDto(rejectedRequests));
+                confirmedIds.size(), rejectedIds.size(), event.getId(), event.getTitle());
+        return new EventRequestStatusUpdateResult(confirmedRequests, rejectedRequests);
+    }
+
+    private static List<Long> ids(List<ParticipationRequestDto> requests) {
+        return requests.stream().map(ParticipationRequestDto::getId).collect(Collectors.toList());
     }
 
     /**
@@ -237,7 +330,7 @@ public class EventServiceImpl implements EventService {
      * @return Method returns info about events
      */
     @Override
-    public List<EventFullDto> getEventsByAdmin(AdminSearchParameters parameters) {
+    public CursorPage<EventFullDto> getEventsByAdmin(AdminSearchParameters parameters) {
         List<Long> users = parameters.getUsers();
         List<Status> states = parameters.getStates();
         List<Long> categories = parameters.getCategories();
@@ -249,12 +342,50 @@ public class EventServiceImpl implements EventService {
         if (parameters.getRangeEnd() != null) {
             rangeEnd = LocalDateTime.parse(parameters.getRangeEnd(), FORMATTER);
         }
-        PageRequest pageRequest = PageRequest.of(parameters.getFrom() / parameters.getSize(), parameters.getSize());
-        List<Event> foundEvents = eventRepository.findAllByAdmin(users, states, categories, rangeStart, rangeEnd, pageRequest);
+        Cursor cursor = parameters.getCursor() == null ? null : Cursor.decode(parameters.getCursor());
+        PageRequest pageRequest = cursor == null
+                ? PageRequest.of(parameters.getFrom() / parameters.getSize(), parameters.getSize())
+                : PageRequest.of(0, parameters.getSize());
+        List<Event> foundEvents = eventRepository.findAllByAdmin(users, states, categories, rangeStart, rangeEnd,
+                cursor == null ? null : cursor.getDateKey(), cursor == null ? 0L : cursor.getId(), pageRequest);
         log.info("Get events by admin: found {} events by users={}, states={}, categories={}, rangeStart={}, " +
-                        "rangeEnd={}, from={}, size={}", foundEvents.size(), users, states, categories, rangeStart,
-                rangeEnd, parameters.getFrom(), parameters.getSize());
-        return EventMapper.toEventFullDto(foundEvents);
+                        "rangeEnd={}, from={}, size={}, cursor={}", foundEvents.size(), users, states, categories,
+                rangeStart, rangeEnd, parameters.getFrom(), parameters.getSize(), parameters.getCursor());
+        return CursorPage.of(foundEvents, parameters.getSize(),
+                event -> Cursor.encode(event.getEventDate(), event.getId()), EventMapper::toEventFullDto);
+    }
+
+    /**
+     * Method for exporting events by admin by multiple parameters without loading them all into memory,
+     * from, size and cursor are ignored and every matching event is passed to the consumer
+     * @param consumer consumer of events, called while the database cursor is open
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportEventsByAdmin(AdminSearchParameters parameters, Consumer<EventFullDto> consumer) {
+        LocalDateTime rangeStart = null;
+        LocalDateTime rangeEnd = null;
+        if (parameters.getRangeStart() != null) {
+            rangeStart = LocalDateTime.parse(parameters.getRangeStart(), FORMATTER);
+        }
+        if (parameters.getRangeEnd() != null) {
+            rangeEnd = LocalDateTime.parse(parameters.getRangeEnd(), FORMATTER);
+        }
+        long exported = 0;
+        try (Stream<Event> events = eventRepository.streamAllByAdmin(parameters.getUsers(), parameters.getStates(),
+                parameters.getCategories(), rangeStart, rangeEnd)) {
+            Iterator<Event> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(EventMapper.toEventFullDto(iterator.next()));
+                // Already written events are dropped from the persistence context so it does not grow with the export
+                if (++exported % EventRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        log.info("Export events by admin: exported {} events by users={}, states={}, categories={}, rangeStart={}, " +
+                        "rangeEnd={}", exported, parameters.getUsers(), parameters.getStates(),
+                parameters.getCategories(), rangeStart, rangeEnd);
     }
 
     /**
@@ -323,6 +454,7 @@ public class EventServiceImpl implements EventService {
             event.setTitle(request.getTitle());
         }
         event = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventUpdatedEvent(eventId));
         log.info("Event with id={}, title={} was updated by admin", event.getId(), event.getTitle());
         return EventMapper.toEventFullDto(event);
     }
@@ -332,7 +464,7 @@ public class EventServiceImpl implements EventService {
      * @return Method returns info about events
      */
     @Override
-    public List<EventShortDto> get(UserSearchParameters parameters, HttpServletRequest request) {
+    public CursorPage<EventShortDto> get(UserSearchParameters parameters, HttpServletRequest request) {
         String text = parameters.getText();
         List<Long> categories = parameters.getCategories();
         Boolean paid = parameters.getPaid();
@@ -352,20 +484,55 @@ public class EventServiceImpl implements EventService {
         }
         Boolean onlyAvailable = parameters.getOnlyAvailable();
         String sort = parameters.getSort();
-        PageRequest pageRequest = PageRequest.of(parameters.getFrom() / parameters.getSize(), parameters.getSize());
+        Cursor cursor = parameters.getCursor() == null ? null : Cursor.decode(parameters.getCursor());
+        PageRequest pageRequest = cursor == null
+                ? PageRequest.of(parameters.getFrom() / parameters.getSize(), parameters.getSize())
+                : PageRequest.of(0, parameters.getSize());
+        long afterId = cursor == null ? 0L : cursor.getId();
+        String query = text == null ? null : toPrefixQuery(text);
+        SearchArea area = SearchArea.anywhere();
+        if (parameters.getLat() != null || parameters.getLon() != null || parameters.getRadius() != null) {
+            if (parameters.getLat() == null || parameters.getLon() == null || parameters.getRadius() == null) {
+                throw new BadSearchAreaException(parameters.getLat(), parameters.getLon(), parameters.getRadius());
+            }
+            area = locationRegistry.searchArea(parameters.getLat(), parameters.getLon(), parameters.getRadius());
+        }
         List<Event> foundEvents;
-        if (sort.equals("EVENT_DATE")) {
-            foundEvents = eventRepository.findAllByUserSortByEventDate(text, categories, paid, rangeStart, rangeEnd,
-                    onlyAvailable, pageRequest);
+        Function<Event, String> nextCursor;
+        if (query != null && sort.equals("RELEVANCE")) {
+            // Relevance is not stored, so this listing is paged by offset only
+            pageRequest = PageRequest.of(parameters.getFrom() / parameters.getSize(), parameters.getSize());
+            foundEvents = eventRepository.findAllByTextSortByRelevance(query, categories, paid, rangeStart, rangeEnd,
+                    onlyAvailable, area, pageRequest);
+            nextCursor = event -> null;
+        } else if (sort.equals("EVENT_DATE")) {
+            LocalDateTime afterEventDate = cursor == null ? null : cursor.getDateKey();
+            if (query != null) {
+                foundEvents = eventRepository.findAllByTextSortByEventDate(query, categories, paid, rangeStart,
+                        rangeEnd, onlyAvailable, afterEventDate, afterId, area, pageRequest);
+            } else {
+                foundEvents = eventRepository.findAllByUserSortByEventDate(text, categories, paid, rangeStart,
+                        rangeEnd, onlyAvailable, afterEventDate, afterId, area, pageRequest);
+            }
+            nextCursor = event -> Cursor.encode(event.getEventDate(), event.getId());
         } else {
-            foundEvents = eventRepository.findAllByUserSortByViews(text, categories, paid, rangeStart, rangeEnd,
-                    onlyAvailable, pageRequest);
+            long afterViews = cursor == null ? Long.MAX_VALUE : cursor.getLongKey();
+            if (query != null) {
+                foundEvents = eventRepository.findAllByTextSortByViews(query, categories, paid, rangeStart,
+                        rangeEnd, onlyAvailable, afterViews, afterId, area, pageRequest);
+            } else {
+                foundEvents = eventRepository.findAllByUserSortByViews(text, categories, paid, rangeStart,
+                        rangeEnd, onlyAvailable, afterViews, afterId, area, pageRequest);
+            }
+            nextCursor = event -> Cursor.encode(event.getViews(), event.getId());
         }
         log.info("Get events by user: found {} events by text={}, categories={}, paid={}, rangeStart={}, rangeEnd={}, " +
-                        "onlyAvailable={}, sort={}, from={}, size={}", foundEvents.size(), text, categories, paid,
-                rangeStart, rangeEnd, onlyAvailable, sort, parameters.getFrom(), parameters.getSize());
-        client.addEndpointHit("ewm", request.getRequestURI(), request.getRemoteAddr(), LocalDateTime.now().format(FORMATTER));
-        return EventMapper.toEventShortDto(foundEvents);
+                        "onlyAvailable={}, sort={}, from={}, size={}, cursor={}, lat={}, lon={}, radius={}",
+                foundEvents.size(), text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort,
+                parameters.getFrom(), parameters.getSize(), parameters.getCursor(), parameters.getLat(),
+                parameters.getLon(), parameters.getRadius());
+        hitPublisher.publish("ewm", request.getRequestURI(), request.getRemoteAddr(), LocalDateTime.now().format(FORMATTER));
+        return CursorPage.of(foundEvents, parameters.getSize(), nextCursor, EventMapper::toEventShortDto);
     }
 
     /**
@@ -375,15 +542,46 @@ public class EventServiceImpl implements EventService {
      */
     @Override
     public EventFullDto getEventById(long id, HttpServletRequest request) {
-        Optional<Event> optionalEvent = eventRepository.findByIdAndState(id, Status.PUBLISHED);
-        Event event = optionalEvent.orElseThrow(() -> new EventNotFoundException(id));
-        if (client.checkIfIpIsUnique(request.getRequestURI(), request.getRemoteAddr())) {
-            event.setViews(event.getViews() + 1L);
-            event = eventRepository.save(event);
+        String uri = request.getRequestURI();
+        String ip = request.getRemoteAddr();
+        // The check may call stats-server, it runs while the event is loaded
+        Fork<Boolean> unique = fanOut.fork(() -> uniqueViewRegistry.isUnique(uri, ip));
+        EventFullDto eventFullDto = null;
+        try {
+            eventFullDto = eventCache.get(id, eventId -> {
+                Optional<Event> optionalEvent = eventRepository.findByIdAndState(eventId, Status.PUBLISHED);
+                Event event = optionalEvent.orElseThrow(() -> new EventNotFoundException(eventId));
+                // The cache may load the event again, it must then read views from the database
+                entityManager.detach(event);
+                return EventMapper.toEventFullDto(event);
+            });
+        } finally {
+            // The check of a view of a missing event must not outlive the request
+            if (eventFullDto == null) {
+                unique.cancel();
+            }
         }
+        if (unique.join()) {
+            eventViewCounter.increment(id);
+            eventFullDto.setViews(eventFullDto.getViews() + 1L);
+        }
+        uniqueViewRegistry.registerView(uri, ip);
         log.info("Get event with id={} by user", id);
-        client.addEndpointHit("ewm", request.getRequestURI(), request.getRemoteAddr(), LocalDateTime.now().format(FORMATTER));
-        return EventMapper.toEventFullDto(event);
+        hitPublisher.publish("ewm", uri, ip, LocalDateTime.now().format(FORMATTER));
+        return eventFullDto;
+    }
+
+    /**
+     * Method converts search text to a full-text query matching events that contain words
+     * starting with every word of the text
+     * @return Method returns the query or null if the text has no words
+     */
+    private static String toPrefixQuery(String text) {
+        String query = Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
     }
 
     /**
@@ -406,8 +604,17 @@ public class EventServiceImpl implements EventService {
      * Method checks if event location is saved, and if not, saves it
      */
     private Location checkEventLocation(Location location) {
-        Optional<Location> optionalLocation = locationRepository
-                .findFirst1ByLatIsAndLonIs(location.getLat(), location.getLon());
-        return optionalLocation.orElseGet(() -> locationRepository.save(location));
+        return locationRegistry.register(location);
+    }
+
+    /**
+     * Method cancels lookups whose results are not needed because the request failed, so they do not outlive it
+     */
+    private static void cancel(Fork<?>... forks) {
+        for (Fork<?> fork : forks) {
+            if (fork != null) {
+                fork.cancel();
+            }
+        }
     }
 }
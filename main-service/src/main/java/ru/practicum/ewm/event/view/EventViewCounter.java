@@ -0,0 +1,127 @@
+package ru.practicum.ewm.event.view;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.event.repository.EventRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind counter of event views.
+ * Views are counted in memory and periodically added to events.views in batched updates,
+ * so viewing an event does not write the event row. Views of an event are counted in a striped LongAdder,
+ * so concurrent views of a popular event do not contend on one counter, and a flush drains it with sumThenReset.
+ * A counter without views since the previous flush is removed. A view that reached a removed counter
+ * is drained again by whichever of the flush and the viewer comes second, so no view is lost or counted twice.
+ * Totals of flushed views are only needed while the event can be in the event cache,
+ * so they expire when not used for twice the lifetime of its entries.
+ * The flush version is odd while a flush is running and changes when it ends, so a reader can tell
+ * whether views in the database and the flushed totals it read belong to the same state
+ */
+@Slf4j
+@Component
+public class EventViewCounter {
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Cache<Long, LongAdder> flushedTotals;
+    private final AtomicLong flushVersion = new AtomicLong();
+
+    public EventViewCounter(EventRepository eventRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${ewm.events.cache.expire-after-write-ms:60000}") long cacheExpireAfterWriteMs) {
+        this.eventRepository = eventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushedTotals = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMillis(2 * cacheExpireAfterWriteMs))
+                .build();
+    }
+
+    /**
+     * Method counts one view of event
+     */
+    public void increment(long eventId) {
+        add(eventId, 1L);
+    }
+
+    /**
+     * Method returns number of views of event flushed to the database by this instance recently
+     */
+    public long getFlushedViews(long eventId) {
+        LongAdder total = flushedTotals.getIfPresent(eventId);
+        return total == null ? 0L : total.sum();
+    }
+
+    /**
+     * Method returns the flush version, it is odd while a flush is running
+     */
+    public long getFlushVersion() {
+        return flushVersion.get();
+    }
+
+    /**
+     * Method returns number of views of event that are not flushed to the database yet
+     */
+    public long getPendingViews(long eventId) {
+        LongAdder pending = counters.get(eventId);
+        return pending == null ? 0L : pending.sum();
+    }
+
+    /**
+     * Method adds counted views to the database, views are returned to the counters if update fails
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${ewm.views.flush-interval-ms:1000}")
+    public void flush() {
+        Map<Long, Long> views = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> counter : counters.entrySet()) {
+            long pending = counter.getValue().sumThenReset();
+            if (pending == 0) {
+                counters.remove(counter.getKey(), counter.getValue());
+                pending = counter.getValue().sumThenReset();
+            }
+            if (pending != 0) {
+                views.put(counter.getKey(), pending);
+            }
+        }
+        if (views.isEmpty()) {
+            return;
+        }
+        flushVersion.incrementAndGet();
+        try {
+            transactionTemplate.executeWithoutResult(status -> eventRepository.addViews(views));
+            views.forEach((eventId, flushed) -> flushedTotals.get(eventId, id -> new LongAdder()).add(flushed));
+            log.debug("Views of {} events were flushed", views.size());
+        } catch (RuntimeException e) {
+            views.forEach(this::add);
+            log.warn("Failed to flush views of {} events: {}", views.size(), e.getMessage());
+        } finally {
+            flushVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Method adds views to the pending counter of event, views that reached a removed counter are moved to a new one
+     */
+    private void add(long eventId, long views) {
+        LongAdder pending = counters.computeIfAbsent(eventId, id -> new LongAdder());
+        pending.add(views);
+        if (counters.get(eventId) != pending) {
+            long late = pending.sumThenReset();
+            if (late != 0) {
+                add(eventId, late);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.ewm.event.view;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.client.StatsClient;
+import ru.practicum.ewm.client.StatsHitPublisher;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local registry of (uri, ip) pairs that have already been seen by stats-server.
+ * Recently seen pairs are kept in a bounded cache, all known pairs are kept in a Bloom filter
+ * warmed from stats-server at startup and updated by local views. A pair is unique without a remote call
+ * if the filter has never seen it, and not unique if it is in the cache; only pairs the filter
+ * reports as possibly seen go to stats-server. Views recorded by other main-service instances after
+ * the warm-up are not visible to this filter
+ */
+@Slf4j
+@Component
+public class UniqueViewRegistry {
+    private final StatsClient client;
+    private final StatsHitPublisher hitPublisher;
+    private final String uriPrefix;
+    private final Cache<String, Boolean> seenViews;
+    private final BloomFilter seenFilter;
+    private final Counter cachedChecks;
+    private final Counter filteredChecks;
+    private final Counter remoteChecks;
+    private volatile boolean warmedUp = false;
+
+    public UniqueViewRegistry(StatsClient client,
+                              StatsHitPublisher hitPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${ewm.views.uri-prefix:/events/}") String uriPrefix,
+                              @Value("${ewm.views.cache.maximum-size:100000}") long cacheSize,
+                              @Value("${ewm.views.filter.expected-insertions:1000000}") long expectedInsertions,
+                              @Value("${ewm.views.filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.client = client;
+        this.hitPublisher = hitPublisher;
+        this.uriPrefix = uriPrefix;
+        this.seenViews = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, seenViews, "unique-views");
+        this.seenFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.cachedChecks = meterRegistry.counter("ewm.views.unique.checks", "source", "cache");
+        this.filteredChecks = meterRegistry.counter("ewm.views.unique.checks", "source", "filter");
+        this.remoteChecks = meterRegistry.counter("ewm.views.unique.checks", "source", "remote");
+    }
+
+    /**
+     * Method loads all (uri, ip) pairs known to stats-server into the filter in the background
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread loader = new Thread(() -> {
+            LongAdder loaded = new LongAdder();
+            try {
+                client.streamVisitors(uriPrefix, visitor -> {
+                    seenFilter.put(key(visitor.getUri(), visitor.getIp()));
+                    loaded.increment();
+                });
+                warmedUp = true;
+                log.info("Unique view filter was warmed up with {} views", loaded.sum());
+            } catch (RuntimeException e) {
+                log.warn("Failed to warm up unique view filter, all checks will go to stats-server: {}",
+                        e.getMessage());
+            }
+        }, "unique-view-warm-up");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Method checks if ip has not viewed uri yet
+     */
+    public boolean isUnique(String uri, String ip) {
+        String key = key(uri, ip);
+        if (seenViews.getIfPresent(key) != null) {
+            cachedChecks.increment();
+            return false;
+        }
+        if (warmedUp && !seenFilter.mightContain(key)) {
+            filteredChecks.increment();
+            return true;
+        }
+        remoteChecks.increment();
+        boolean unique = !hitPublisher.isPending(uri, ip) && client.checkIfIpIsUnique(uri, ip);
+        if (!unique) {
+            seenViews.put(key, Boolean.TRUE);
+        }
+        return unique;
+    }
+
+    /**
+     * Method remembers that ip has viewed uri
+     */
+    public void registerView(String uri, String ip) {
+        String key = key(uri, ip);
+        seenViews.put(key, Boolean.TRUE);
+        seenFilter.put(key);
+    }
+
+    private static String key(String uri, String ip) {
+        return uri + " " + ip;
+    }
+}
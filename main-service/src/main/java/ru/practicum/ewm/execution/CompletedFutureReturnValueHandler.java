@@ -0,0 +1,44 @@
+package ru.practicum.ewm.execution;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handler of futures returned by controllers that writes the result of an already completed future
+ * on the request thread like a plain return value, so no asynchronous dispatch is started for it.
+ * Futures of {@link RequestExecutor} are always completed when asynchronous execution is disabled,
+ * and also when the pool was full and the work ran on the calling thread.
+ * Other futures are passed to the asynchronous handler of Spring MVC
+ */
+public class CompletedFutureReturnValueHandler implements HandlerMethodReturnValueHandler {
+    private final HandlerMethodReturnValueHandler bodyHandler;
+    private final HandlerMethodReturnValueHandler asyncHandler;
+
+    public CompletedFutureReturnValueHandler(HandlerMethodReturnValueHandler bodyHandler,
+                                             HandlerMethodReturnValueHandler asyncHandler) {
+        this.bodyHandler = bodyHandler;
+        this.asyncHandler = asyncHandler;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return CompletableFuture.class.isAssignableFrom(returnType.getParameterType())
+                && bodyHandler.supportsReturnType(returnType)
+                && asyncHandler.supportsReturnType(returnType);
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        CompletableFuture<?> future = (CompletableFuture<?>) returnValue;
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            bodyHandler.handleReturnValue(future.join(), returnType, mavContainer, webRequest);
+        } else {
+            asyncHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+        }
+    }
+}
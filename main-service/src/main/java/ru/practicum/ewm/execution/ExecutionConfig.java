@@ -0,0 +1,38 @@
+package ru.practicum.ewm.execution;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.DeferredResultMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestResponseBodyMethodProcessor;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts {@link CompletedFutureReturnValueHandler} before the handlers of Spring MVC,
+ * which would start an asynchronous dispatch for every returned future
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ExecutionConfig {
+    private final RequestMappingHandlerAdapter handlerAdapter;
+
+    @PostConstruct
+    public void registerCompletedFutureHandler() {
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(handlerAdapter.getReturnValueHandlers());
+        handlers.add(0, new CompletedFutureReturnValueHandler(find(handlers, RequestResponseBodyMethodProcessor.class),
+                find(handlers, DeferredResultMethodReturnValueHandler.class)));
+        handlerAdapter.setReturnValueHandlers(handlers);
+    }
+
+    private static HandlerMethodReturnValueHandler find(List<HandlerMethodReturnValueHandler> handlers,
+                                                        Class<? extends HandlerMethodReturnValueHandler> type) {
+        return handlers.stream()
+                .filter(type::isInstance)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(type.getSimpleName() + " is not registered"));
+    }
+}
@@ -0,0 +1,156 @@
+package ru.practicum.ewm.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.monitoring.QueryCountInspector;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Executor of independent lookups of one request, such as calling stats-server while an event is loaded.
+ * A forked lookup starts on a bounded pool and is joined by the request thread, so the request waits for
+ * the slowest lookup instead of the sum of all of them. A lookup that has not started by the time it is joined,
+ * because the pool was busy or its queue was full, runs on the joining thread, so a request never waits
+ * for a queue. The pool is separate from {@link RequestExecutor}, whose threads join lookups forked here.
+ * Lookups run without the transaction of the request thread, so they must only read.
+ * Database lookups are forked and joined before the transaction of the request starts: a request thread
+ * that held a connection while it joined would never let it go when lookups wait for connections of a drained pool
+ */
+@Slf4j
+@Component
+public class FanOutExecutor {
+    private final ExecutorService executor;
+
+    public FanOutExecutor(MeterRegistry meterRegistry,
+                          @Value("${ewm.fan-out.enabled:true}") boolean enabled,
+                          @Value("${ewm.fan-out.pool-size:8}") int poolSize,
+                          @Value("${ewm.fan-out.queue-capacity:100}") int queueCapacity) {
+        if (enabled) {
+            // Discarded lookups are not lost, they are run by the thread that joins them
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("ewm-fan-out-"),
+                    new ThreadPoolExecutor.DiscardPolicy());
+            this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "ewm.fan-out");
+            log.info("Independent lookups are executed concurrently on {} threads", poolSize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Method for starting a lookup
+     * @return Method returns the lookup, which must be joined to get its result
+     */
+    public <T> Fork<T> fork(Supplier<T> work) {
+        Fork<T> fork = new Fork<>(work);
+        if (executor != null) {
+            executor.execute(fork::runOnPool);
+        }
+        return fork;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Lookup started by {@link #fork(Supplier)}
+     */
+    public static class Fork<T> {
+        private final Supplier<T> work;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile long queryCount;
+        private boolean joined;
+
+        private Fork(Supplier<T> work) {
+            this.work = work;
+        }
+
+        /**
+         * Method waits for the lookup or runs it on the current thread if it has not started yet
+         * @return Method returns the result of the lookup or throws the same exception the lookup threw
+         */
+        public T join() {
+            joined = true;
+            if (claimed.compareAndSet(false, true)) {
+                return work.get();
+            }
+            T value;
+            try {
+                value = result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            } finally {
+                addQueryCount();
+            }
+            return value;
+        }
+
+        /**
+         * Method cancels the lookup if it has not started yet, otherwise waits for it to end,
+         * so a lookup whose result is not needed does not outlive the request. The result is discarded,
+         * a lookup that was already joined is left as it is
+         */
+        public void cancel() {
+            if (joined) {
+                return;
+            }
+            joined = true;
+            if (claimed.compareAndSet(false, true)) {
+                return;
+            }
+            result.handle((value, failure) -> null).join();
+            addQueryCount();
+        }
+
+        private void addQueryCount() {
+            long[] count = QueryCountInspector.current();
+            if (count != null) {
+                count[0] += queryCount;
+            }
+        }
+
+        /**
+         * Runs the lookup on a pool thread counting its statements separately,
+         * they are added to the counter of the request when the lookup is joined
+         */
+        private void runOnPool() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            QueryCountInspector.start();
+            T value = null;
+            Throwable failure = null;
+            try {
+                value = work.get();
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // The count is set before completing, so the joining thread always sees it
+            queryCount = QueryCountInspector.stop();
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+}
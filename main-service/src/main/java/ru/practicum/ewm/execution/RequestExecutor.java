@@ -0,0 +1,101 @@
+package ru.practicum.ewm.execution;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.practicum.ewm.monitoring.QueryCountInspector;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Executor of the blocking work of controllers. When ewm.async.enabled is set the work runs on a bounded pool
+ * and the servlet request is completed asynchronously, so Tomcat threads are not held while waiting for
+ * the database or stats-server. When the pool and its queue are full the work runs on the calling thread,
+ * which slows down accepting new requests instead of rejecting them. A request not completed within
+ * spring.mvc.async.request-timeout gets 503.
+ * Without ewm.async.enabled the work runs on the calling thread as before, and the completed future it returns
+ * is written by {@link CompletedFutureReturnValueHandler} without an asynchronous dispatch
+ */
+@Slf4j
+@Component
+public class RequestExecutor {
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExecutorService executor;
+
+    public RequestExecutor(EntityManagerFactory entityManagerFactory,
+                           MeterRegistry meterRegistry,
+                           @Value("${ewm.async.enabled:false}") boolean enabled,
+                           @Value("${ewm.async.pool-size:50}") int poolSize,
+                           @Value("${ewm.async.queue-capacity:500}") int queueCapacity) {
+        this.entityManagerFactory = entityManagerFactory;
+        if (enabled) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("ewm-request-"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "ewm.requests");
+            log.info("Requests are executed asynchronously on {} threads", poolSize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Method for running the blocking work of a request
+     * @return Method returns a future completed with the result of work or with the exception it threw,
+     * the future is already completed when asynchronous execution is disabled
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        long[] queryCount = QueryCountInspector.current();
+        return CompletableFuture.supplyAsync(() -> runInRequestContext(work, requestAttributes, queryCount),
+                executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs work with the request attributes, the query counter and an open EntityManager bound to the thread
+     * like on the request thread, where open-in-view keeps one EntityManager for the whole request
+     */
+    private <T> T runInRequestContext(Supplier<T> work, RequestAttributes requestAttributes, long[] queryCount) {
+        RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+        long[] previousQueryCount = QueryCountInspector.current();
+        boolean bindEntityManager = !TransactionSynchronizationManager.hasResource(entityManagerFactory);
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        QueryCountInspector.attach(queryCount);
+        if (bindEntityManager) {
+            TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                    new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+        }
+        try {
+            return work.get();
+        } finally {
+            if (bindEntityManager) {
+                EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager
+                        .unbindResource(entityManagerFactory);
+                EntityManagerFactoryUtils.closeEntityManager(holder.getEntityManager());
+            }
+            QueryCountInspector.attach(previousQueryCount);
+            RequestContextHolder.setRequestAttributes(previousAttributes);
+        }
+    }
+}
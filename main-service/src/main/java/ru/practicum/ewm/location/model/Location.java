@@ -1,5 +1,6 @@
 package ru.practicum.ewm.location.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -20,4 +21,10 @@ public class Location {
     private Double lat;
     @Column(name = "lon")
     private Double lon;
+    @JsonIgnore
+    @Column(name = "lat_q")
+    private Integer latQ;
+    @JsonIgnore
+    @Column(name = "lon_q")
+    private Integer lonQ;
 }
@@ -0,0 +1,32 @@
+package ru.practicum.ewm.location.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Area of a radius search of events. Locations are read by the unique index on quantised coordinates
+ * within the bounding box of the area, then the haversine of their central angle to the centre of the area
+ * is compared with maxHaversine, which is the haversine of the radius
+ */
+@Getter
+@AllArgsConstructor
+public class SearchArea {
+    private static final SearchArea ANYWHERE = new SearchArea(true, 0, 0, 0, 0, 0, 0, 1, 1);
+    private final boolean anywhere;
+    private final int minLatQ;
+    private final int maxLatQ;
+    private final int minLonQ;
+    private final int maxLonQ;
+    private final double lat;
+    private final double lon;
+    private final double cosLat;
+    private final double maxHaversine;
+
+    /**
+     * Method returns the area of searches without a location, it has no null fields,
+     * as PostgreSQL cannot type null parameters of the area condition
+     */
+    public static SearchArea anywhere() {
+        return ANYWHERE;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.ewm.location.registry;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.location.model.SearchArea;
+import ru.practicum.ewm.location.repository.LocationRepository;
+
+import java.util.Optional;
+
+/**
+ * Registry of saved locations. Coordinates are stored as REAL and quantised to 1e-5 degree (about a metre),
+ * locations with the same quantised coordinates are the same location, which is enforced by a unique index.
+ * The same index serves radius searches, which read the bounding box of the area and check the distance
+ * only for locations in it. Quantised coordinates are computed from coordinates rounded to REAL,
+ * like in the V4 migration.
+ * Saved locations are cached by quantised coordinates, new ones are cached after their transaction is committed
+ */
+@Component
+public class LocationRegistry {
+    private static final int PRECISION = 100_000;
+    private static final int BOX_MARGIN = 2;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = EARTH_RADIUS_KM * Math.PI / 180;
+    private final LocationRepository locationRepository;
+    private final Cache<Long, Location> locations;
+
+    public LocationRegistry(LocationRepository locationRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${ewm.locations.cache.maximum-size:100000}") long maximumSize) {
+        this.locationRepository = locationRepository;
+        this.locations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, locations, "locations");
+    }
+
+    /**
+     * Method looks for a saved location with the same coordinates
+     */
+    public Optional<Location> find(Location location) {
+        int latQ = quantise(location.getLat());
+        int lonQ = quantise(location.getLon());
+        Location cachedLocation = locations.getIfPresent(key(latQ, lonQ));
+        if (cachedLocation != null) {
+            return Optional.of(copy(cachedLocation));
+        }
+        Optional<Location> savedLocation = locationRepository.findByLatQAndLonQ(latQ, lonQ);
+        savedLocation.ifPresent(saved -> locations.put(key(latQ, lonQ), copy(saved)));
+        return savedLocation;
+    }
+
+    /**
+     * Method saves location if a location with the same coordinates is not saved yet
+     * @return Method returns the saved location
+     */
+    public Location save(Location location) {
+        int latQ = quantise(location.getLat());
+        int lonQ = quantise(location.getLon());
+        Location savedLocation = locationRepository.upsert(location.getLat(), location.getLon(), latQ, lonQ);
+        Location cachedLocation = copy(savedLocation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The location is not visible to other transactions and may be rolled back until commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    locations.put(key(latQ, lonQ), cachedLocation);
+                }
+            });
+        } else {
+            locations.put(key(latQ, lonQ), cachedLocation);
+        }
+        return savedLocation;
+    }
+
+    /**
+     * Method returns a saved location with the same coordinates, saving location if there is none
+     */
+    public Location register(Location location) {
+        return find(location).orElseGet(() -> save(location));
+    }
+
+    /**
+     * Method for getting the area of a search of locations within a distance from a point
+     * @param radiusKm distance in kilometres
+     */
+    public SearchArea searchArea(double lat, double lon, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        double minLat = lat - latDelta;
+        double maxLat = lat + latDelta;
+        double minLon = -180;
+        double maxLon = 180;
+        if (minLat > -90 && maxLat < 90) {
+            double lonDelta = latDelta / Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+            // Areas crossing the antimeridian read the whole band of latitudes
+            if (lon - lonDelta >= -180 && lon + lonDelta < 180) {
+                minLon = lon - lonDelta;
+                maxLon = lon + lonDelta;
+            }
+        }
+        // The box is widened, as quantised coordinates were computed from coordinates rounded to REAL
+        return new SearchArea(false,
+                (int) Math.floor(minLat * PRECISION) - BOX_MARGIN, (int) Math.ceil(maxLat * PRECISION) + BOX_MARGIN,
+                (int) Math.floor(minLon * PRECISION) - BOX_MARGIN, (int) Math.ceil(maxLon * PRECISION) + BOX_MARGIN,
+                lat, lon, Math.cos(Math.toRadians(lat)), Math.pow(Math.sin(radiusKm / EARTH_RADIUS_KM / 2), 2));
+    }
+
+    private static int quantise(double coordinate) {
+        return (int) Math.rint((float) coordinate * (double) PRECISION);
+    }
+
+    private static long key(int latQ, int lonQ) {
+        return (long) latQ << 32 | lonQ & 0xFFFFFFFFL;
+    }
+
+    private static Location copy(Location location) {
+        return new Location(location.getId(), location.getLat(), location.getLon(), location.getLatQ(),
+                location.getLonQ());
+    }
+}
@@ -1,10 +1,22 @@
 package ru.practicum.ewm.location.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.location.model.Location;
 
 import java.util.Optional;
 
 public interface LocationRepository extends JpaRepository<Location, Long> {
-    Optional<Location> findFirst1ByLatIsAndLonIs(double lat, double lon);
+    Optional<Location> findByLatQAndLonQ(int latQ, int lonQ);
+
+    /**
+     * Method for saving a location in one statement, so concurrent requests cannot save the same location twice
+     * @return Method returns the saved location or the location that was already saved with the same coordinates
+     */
+    @Transactional
+    @Query(value = "INSERT INTO locations (lat, lon, lat_q, lon_q) VALUES (?1, ?2, ?3, ?4) " +
+            "ON CONFLICT (lat_q, lon_q) DO UPDATE SET lat_q = EXCLUDED.lat_q " +
+            "RETURNING *", nativeQuery = true)
+    Location upsert(double lat, double lon, int latQ, int lonQ);
 }
@@ -0,0 +1,56 @@
+package ru.practicum.ewm.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate statement inspector counting SQL statements executed by the current thread.
+ * Counting is started and stopped around each HTTP request by {@link QueryCountInterceptor},
+ * the counter can be attached to another thread that does the work of the same request
+ */
+public class QueryCountInspector implements StatementInspector {
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        long[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Method starts counting for the current thread
+     * @return Method returns the counter of the current thread
+     */
+    public static long[] start() {
+        long[] count = new long[1];
+        COUNT.set(count);
+        return count;
+    }
+
+    public static long[] current() {
+        return COUNT.get();
+    }
+
+    /**
+     * Method makes statements of the current thread count into the given counter, null stops counting
+     */
+    public static void attach(long[] count) {
+        if (count == null) {
+            COUNT.remove();
+        } else {
+            COUNT.set(count);
+        }
+    }
+
+    /**
+     * Method stops counting for the current thread
+     * @return Method returns the number of statements executed since start or 0 if counting was not started
+     */
+    public static long stop() {
+        long[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0L : count[0];
+    }
+}
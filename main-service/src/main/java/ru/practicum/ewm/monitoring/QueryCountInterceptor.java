@@ -0,0 +1,70 @@
+package ru.practicum.ewm.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Interceptor reporting requests that execute more SQL statements than the configured limit,
+ * which is how N+1 lazy loading shows up after a query or mapper change.
+ * Statement counts of every request are recorded in the ewm.requests.queries summary tagged with the endpoint.
+ * For asynchronous requests the counter is kept in a request attribute between the dispatches
+ */
+@Slf4j
+@Component
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+    private static final String COUNT_ATTRIBUTE = QueryCountInterceptor.class.getName() + ".COUNT";
+    private final MeterRegistry meterRegistry;
+    private final long maxQueries;
+
+    public QueryCountInterceptor(MeterRegistry meterRegistry,
+                                 @Value("${ewm.query-count.max-per-request:10}") long maxQueries) {
+        this.meterRegistry = meterRegistry;
+        this.maxQueries = maxQueries;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            QueryCountInspector.attach((long[]) request.getAttribute(COUNT_ATTRIBUTE));
+        } else {
+            request.setAttribute(COUNT_ATTRIBUTE, QueryCountInspector.start());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // The request continues on another thread and is completed by an async dispatch
+        QueryCountInspector.attach(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        long queries = QueryCountInspector.stop();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("ewm.requests.queries")
+                .description("SQL statements executed per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(queries);
+        if (queries > maxQueries) {
+            log.warn("{} {} executed {} SQL statements, limit is {}", request.getMethod(), request.getRequestURI(),
+                    queries, maxQueries);
+        } else {
+            log.debug("{} {} executed {} SQL statements", request.getMethod(), request.getRequestURI(), queries);
+        }
+    }
+}
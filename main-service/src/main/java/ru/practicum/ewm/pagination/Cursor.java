@@ -0,0 +1,54 @@
+package ru.practicum.ewm.pagination;
+
+import lombok.Value;
+import ru.practicum.ewm.pagination.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing sorted by some key and then by id.
+ * Clients get it as an opaque token and pass it back to continue the listing after the last returned row
+ */
+@Value
+public class Cursor {
+    private static final String SEPARATOR = ",";
+    String key;
+    long id;
+
+    public static String encode(Object key, long id) {
+        String value = (key == null ? "" : key.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException(token);
+            }
+            return new Cursor(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public LocalDateTime getDateKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new InvalidCursorException(encode(key, id));
+        }
+    }
+
+    public long getLongKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(encode(key, id));
+        }
+    }
+}
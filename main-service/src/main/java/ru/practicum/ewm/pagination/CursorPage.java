@@ -0,0 +1,25 @@
+package ru.practicum.ewm.pagination;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of a listing with the cursor of its last row, the cursor is null if there are no more rows
+ */
+@Value
+public class CursorPage<T> {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    List<T> items;
+    String nextCursor;
+
+    /**
+     * Method creates a page, the cursor of the last row is returned only if the page is full
+     */
+    public static <R, T> CursorPage<T> of(List<R> rows, int size, Function<R, String> cursor,
+                                          Function<List<R>, List<T>> mapper) {
+        String nextCursor = rows.size() < size ? null : cursor.apply(rows.get(rows.size() - 1));
+        return new CursorPage<>(mapper.apply(rows), nextCursor);
+    }
+}
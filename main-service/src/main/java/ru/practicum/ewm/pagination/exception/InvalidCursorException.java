@@ -0,0 +1,11 @@
+package ru.practicum.ewm.pagination.exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Cursor=%s is invalid", cursor));
+        log.error("Cursor={} is invalid", cursor);
+    }
+}
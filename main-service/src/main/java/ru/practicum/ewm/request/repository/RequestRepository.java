@@ -6,11 +6,9 @@ import ru.practicum.ewm.request.model.ParticipationRequest;
 import java.util.List;
 import java.util.Optional;
 
-public interface RequestRepository extends JpaRepository<ParticipationRequest, Long> {
+public interface RequestRepository extends JpaRepository<ParticipationRequest, Long>, RequestRepositoryCustom {
     List<ParticipationRequest> findAllByEventId(long id);
 
-    List<ParticipationRequest> findAllByIdIn(List<Long> ids);
-
     List<ParticipationRequest> findAllByRequesterId(long id);
 
     Optional<ParticipationRequest> findByEventIdAndRequesterId(long eventId, long requesterId);
@@ -0,0 +1,13 @@
+package ru.practicum.ewm.request.repository;
+
+import ru.practicum.ewm.event.model.Status;
+import ru.practicum.ewm.request.dto.ParticipationRequestDto;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RequestRepositoryCustom {
+    List<ParticipationRequestDto> findDtosByIdInAndEventId(Collection<Long> ids, long eventId);
+
+    int updateStatus(Collection<Long> ids, long eventId, Status currentStatus, Status newStatus);
+}
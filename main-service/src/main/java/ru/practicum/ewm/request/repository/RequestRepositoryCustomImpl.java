@@ -0,0 +1,50 @@
+package ru.practicum.ewm.request.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.event.model.Status;
+import ru.practicum.ewm.request.dto.ParticipationRequestDto;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries of requests by many ids. The ids are bound as one BIGINT array, so a statement has the same
+ * few parameters for any number of ids and PostgreSQL can reuse its plan
+ */
+@RequiredArgsConstructor
+public class RequestRepositoryCustomImpl implements RequestRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Method reads info about requests of event without loading request entities
+     * @return Method returns requests in the order they were created, ids of requests to other events are skipped
+     */
+    @Override
+    public List<ParticipationRequestDto> findDtosByIdInAndEventId(Collection<Long> ids, long eventId) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT id, requester_id, status, created " +
+                    "FROM requests " +
+                    "WHERE id = ANY (?) AND event_id = ? " +
+                    "ORDER BY created ASC, id ASC");
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            statement.setLong(2, eventId);
+            return statement;
+        }, (rs, rowNum) -> new ParticipationRequestDto(rs.getLong("id"), eventId, rs.getLong("requester_id"),
+                Status.valueOf(rs.getString("status")), rs.getTimestamp("created").toLocalDateTime()));
+    }
+
+    @Override
+    public int updateStatus(Collection<Long> ids, long eventId, Status currentStatus, Status newStatus) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("UPDATE requests SET status = ? " +
+                    "WHERE id = ANY (?) AND event_id = ? AND status = ?");
+            statement.setString(1, newStatus.name());
+            statement.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+            statement.setLong(3, eventId);
+            statement.setString(4, currentStatus.name());
+            return statement;
+        });
+    }
+}
@@ -1,8 +1,12 @@
 package ru.practicum.ewm.request.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.event.cache.EventUpdatedEvent;
 import ru.practicum.ewm.event.exception.EventNotFoundException;
 import ru.practicum.ewm.event.exception.ParticipantLimitIsFullException;
 import ru.practicum.ewm.event.model.Event;
@@ -24,10 +28,12 @@ import java.util.Optional;
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "ewm.service", histogram = true)
 public class RequestServiceImpl implements RequestService {
     private final RequestRepository requestRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Method for getting requests by current user
@@ -49,6 +55,7 @@ public class RequestServiceImpl implements RequestService {
      * @return Method returns the created request
      */
     @Override
+    @Transactional
     public ParticipationRequestDto create(long userId, long eventId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new UserNotFoundException(userId));
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new EventNotFoundException(eventId));
@@ -68,8 +75,11 @@ public class RequestServiceImpl implements RequestService {
         Status status;
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0L) {
             status = Status.CONFIRMED;
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1L);
-            event = eventRepository.save(event);
+            // The check above reads a snapshot, the seat is taken only if the event is still not full
+            if (eventRepository.reserveSeat(eventId) == 0) {
+                throw new ParticipantLimitIsFullException();
+            }
+            eventPublisher.publishEvent(new EventUpdatedEvent(eventId));
         } else {
             status = Status.PENDING;
         }
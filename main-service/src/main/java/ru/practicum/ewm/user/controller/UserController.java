@@ -4,10 +4,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.user.dto.NewUserRequest;
 import ru.practicum.ewm.user.dto.UserDto;
 import ru.practicum.ewm.user.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -22,14 +24,21 @@ public class UserController {
     /**
      * Method for getting info about users
      * @param ids ids of users to get info about
+     * @param cursor cursor from X-Next-Cursor header of the previous page, from is ignored if it is set
      * @return Method returns info about users
      */
     @GetMapping("/admin/users")
     @ResponseStatus(HttpStatus.OK)
     public List<UserDto> get(@RequestParam(name = "ids", required = false) List<Long> ids,
                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-                             @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
-        return userService.get(ids, from, size);
+                             @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+                             @RequestParam(name = "cursor", required = false) String cursor,
+                             HttpServletResponse response) {
+        CursorPage<UserDto> page = userService.get(ids, from, size, cursor);
+        if (page.getNextCursor() != null) {
+            response.setHeader(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return page.getItems();
     }
 
     /**
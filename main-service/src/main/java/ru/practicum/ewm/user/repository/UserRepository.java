@@ -7,7 +7,7 @@ import ru.practicum.ewm.user.model.User;
 import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, Long> {
-    List<User> findAllBy(Pageable pageable);
+    List<User> findAllByIdGreaterThanOrderByIdAsc(long afterId, Pageable pageable);
 
-    List<User> findAllByIdIn(List<Long> ids, Pageable pageable);
+    List<User> findAllByIdInAndIdGreaterThanOrderByIdAsc(List<Long> ids, long afterId, Pageable pageable);
 }
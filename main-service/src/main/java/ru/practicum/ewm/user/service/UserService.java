@@ -1,12 +1,13 @@
 package ru.practicum.ewm.user.service;
 
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.user.dto.NewUserRequest;
 import ru.practicum.ewm.user.dto.UserDto;
 
 import java.util.List;
 
 public interface UserService {
-    List<UserDto> get(List<Long> ids, int from, int size);
+    CursorPage<UserDto> get(List<Long> ids, int from, int size, String cursor);
 
     UserDto create(NewUserRequest newUserRequest);
 
@@ -5,6 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.pagination.Cursor;
+import ru.practicum.ewm.pagination.CursorPage;
 import ru.practicum.ewm.user.dto.NewUserRequest;
 import ru.practicum.ewm.user.dto.UserDto;
 import ru.practicum.ewm.user.dto.UserMapper;
@@ -23,19 +25,21 @@ public class UserServiceImpl implements UserService {
     /**
      * Method for getting info about users
      * @param ids ids of users to get info about
+     * @param cursor cursor of the last user of the previous page, from is ignored if it is set
      * @return Method returns info about users
      */
     @Override
-    public List<UserDto> get(List<Long> ids, int from, int size) {
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+    public CursorPage<UserDto> get(List<Long> ids, int from, int size, String cursor) {
+        long afterId = cursor == null ? 0L : Cursor.decode(cursor).getId();
+        PageRequest pageRequest = cursor == null ? PageRequest.of(from / size, size) : PageRequest.of(0, size);
         List<User> foundUsers;
         if (ids == null) {
-            foundUsers = userRepository.findAllBy(pageRequest);
+            foundUsers = userRepository.findAllByIdGreaterThanOrderByIdAsc(afterId, pageRequest);
         } else {
-            foundUsers = userRepository.findAllByIdIn(ids, pageRequest);
+            foundUsers = userRepository.findAllByIdInAndIdGreaterThanOrderByIdAsc(ids, afterId, pageRequest);
         }
         log.info("{} users were found", foundUsers.size());
-        return UserMapper.toUserDto(foundUsers);
+        return CursorPage.of(foundUsers, size, user -> Cursor.encode(null, user.getId()), UserMapper::toUserDto);
     }
 
     /**
@@ -0,0 +1,10 @@
+CREATE INDEX IF NOT EXISTS events_state_event_date_idx ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS events_state_views_idx ON events (state, views DESC, id);
+CREATE INDEX IF NOT EXISTS events_event_date_idx ON events (event_date, id);
+CREATE INDEX IF NOT EXISTS events_category_id_idx ON events (category_id);
+CREATE INDEX IF NOT EXISTS events_initiator_id_idx ON events (initiator_id);
+CREATE INDEX IF NOT EXISTS requests_requester_id_idx ON requests (requester_id);
+CREATE INDEX IF NOT EXISTS event_compilation_compilation_id_idx ON event_compilation (compilation_id);
+CREATE INDEX IF NOT EXISTS comments_event_id_idx ON comments (event_id);
+CREATE INDEX IF NOT EXISTS comments_author_id_idx ON comments (author_id);
+CREATE INDEX IF NOT EXISTS comments_last_updated_idx ON comments (last_updated DESC, id DESC);
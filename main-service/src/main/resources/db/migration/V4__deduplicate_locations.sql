@@ -0,0 +1,23 @@
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS lat_q INTEGER;
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS lon_q INTEGER;
+
+-- Coordinates are quantised to 1e-5 degree, as in LocationRegistry
+UPDATE locations SET
+    lat_q = round(lat::double precision * 100000),
+    lon_q = round(lon::double precision * 100000);
+
+-- Events of duplicate locations are moved to the first of them before the duplicates are deleted
+CREATE TEMPORARY TABLE location_duplicates AS
+SELECT id, first_id
+FROM (SELECT id, min(id) OVER (PARTITION BY lat_q, lon_q) AS first_id FROM locations) AS l
+WHERE id <> first_id;
+
+UPDATE events e SET location_id = d.first_id FROM location_duplicates d WHERE e.location_id = d.id;
+DELETE FROM locations l USING location_duplicates d WHERE l.id = d.id;
+DROP TABLE location_duplicates;
+
+ALTER TABLE locations ALTER COLUMN lat_q SET NOT NULL;
+ALTER TABLE locations ALTER COLUMN lon_q SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS locations_lat_q_lon_q_idx ON locations (lat_q, lon_q);
+CREATE INDEX IF NOT EXISTS events_location_id_idx ON events (location_id);
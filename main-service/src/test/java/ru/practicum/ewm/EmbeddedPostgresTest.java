@@ -0,0 +1,46 @@
+package ru.practicum.ewm;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Base of tests running the application against a PostgreSQL server started once for all tests,
+ * the schema is created by Flyway migrations like in production.
+ * PostgreSQL refuses to run as root, so the tests are skipped when the build runs as root
+ */
+@SpringBootTest
+public abstract class EmbeddedPostgresTest {
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void checkUser() {
+        assumeFalse("root".equals(System.getProperty("user.name")), "PostgreSQL cannot be started as root");
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgres server = start();
+        registry.add("spring.datasource.url", () -> server.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    private static synchronized EmbeddedPostgres start() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return postgres;
+    }
+}
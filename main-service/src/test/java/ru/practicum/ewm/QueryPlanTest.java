@@ -0,0 +1,299 @@
+package ru.practicum.ewm;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.comment.repository.CommentRepository;
+import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.location.model.SearchArea;
+import ru.practicum.ewm.location.registry.LocationRegistry;
+import ru.practicum.ewm.request.repository.RequestRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the indexes of the V3 and V4 migrations serve the predicates and orderings of repository queries.
+ * Each repository method is called, and the SQL generated by Hibernate is recorded together with the values
+ * bound to it, then it is executed with EXPLAIN ANALYZE and the same values. Sequential scans are disabled,
+ * so a plan uses an index whenever one matches the query. Each query is explained with its index and again
+ * after the index is dropped, which must give a more expensive plan. The planner costs the hashed and the per row
+ * subplan of the search area condition the same, so without the index of locations a search in an area
+ * must read more buffers instead.
+ * The tables are filled with generated rows and analyzed first, so plans do not depend on rows left by other tests.
+ * The transaction is rolled back after that
+ */
+class QueryPlanTest extends EmbeddedPostgresTest {
+    private static final Pattern TOTAL_COST = Pattern.compile("cost=[\\d.]+\\.\\.([\\d.]+)");
+    private static final Pattern BUFFERS = Pattern.compile("Buffers: shared((?: \\w+=\\d+)+)");
+    private static final Pattern PAGES = Pattern.compile("=(\\d+)");
+    // Indexes read by subplans, which the planner costs the same whether they are hashed or run per row
+    private static final Set<String> SUBPLAN_INDEXES = Set.of("locations_lat_q_lon_q_idx");
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final PageRequest PAGE = PageRequest.of(0, 10);
+    // A tenth of events is published and event dates span 2020-2040, like a catalogue with a long history,
+    // locations are spread over 50 degrees, so a search area holds a small share of them
+    private static final String[] SEED = {
+            "TRUNCATE comments, event_compilation, compilations, requests, events, locations, categories, users " +
+                    "RESTART IDENTITY CASCADE",
+            "INSERT INTO users (name, email) SELECT 'user' || i, 'user' || i || '@mail.ru' " +
+                    "FROM generate_series(1, 100) i",
+            "INSERT INTO categories (name) SELECT 'category' || i FROM generate_series(1, 100) i",
+            "INSERT INTO locations (lat, lon, lat_q, lon_q) SELECT i / 200.0, i / 200.0, i * 500, i * 500 " +
+                    "FROM generate_series(1, 10000) i",
+            "INSERT INTO events (annotation, category_id, confirmed_requests, created_on, description, event_date, " +
+                    "initiator_id, location_id, paid, participant_limit, published_on, request_moderation, state, " +
+                    "title, views) SELECT 'annotation', i % 100 + 1, 0, '2020-01-01', 'description', " +
+                    "'2020-01-01'::timestamp + i * interval '10 hours', i % 100 + 1, i % 10000 + 1, false, 0, NULL, " +
+                    "false, CASE WHEN i % 10 = 0 THEN 'PUBLISHED' ELSE 'PENDING' END, 'event' || i, i % 1000 " +
+                    "FROM generate_series(1, 17500) i",
+            "INSERT INTO requests (created, event_id, requester_id, status) " +
+                    "SELECT '2020-01-01', i, i % 100 + 1, 'PENDING' FROM generate_series(1, 10000) i",
+            "INSERT INTO compilations (pinned, title) SELECT false, 'compilation' || i FROM generate_series(1, 1000) i",
+            "INSERT INTO event_compilation (event_id, compilation_id) " +
+                    "SELECT i, i % 1000 + 1 FROM generate_series(1, 10000) i",
+            "INSERT INTO comments (text, event_id, author_id, created, last_updated) " +
+                    "SELECT 'text' || i, i, i % 100 + 1, '2020-01-01', " +
+                    "'2020-01-01'::timestamp + i * interval '10 hours' " +
+                    "FROM generate_series(1, 17500) i",
+            "ANALYZE"
+    };
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private CompilationRepository compilationRepository;
+    @Autowired
+    private LocationRegistry locationRegistry;
+
+    static Stream<Arguments> queries() {
+        return Stream.of(
+                Arguments.of("events_state_event_date_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByUserSortByEventDate(null, null, null, NOW, null, false,
+                                null, 0L, SearchArea.anywhere(), PAGE)),
+                Arguments.of("events_state_views_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByUserSortByViews(null, null, null, NOW, null, false,
+                                100L, 5L, SearchArea.anywhere(), PAGE)),
+                Arguments.of("events_event_date_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByAdmin(null, null, null, NOW, null, null, 0L, PAGE)),
+                Arguments.of("events_category_id_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByCategoryId(1L)),
+                Arguments.of("events_initiator_id_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByInitiatorId(1L, PAGE)),
+                Arguments.of("locations_lat_q_lon_q_idx", (RepositoryQuery) test ->
+                        test.eventRepository.findAllByUserSortByEventDate(null, null, null, NOW, null, false,
+                                null, 0L, test.locationRegistry.searchArea(0.5, 0.5, 10), PAGE)),
+                Arguments.of("requests_requester_id_idx", (RepositoryQuery) test ->
+                        test.requestRepository.findAllByRequesterId(1L)),
+                Arguments.of("event_compilation_compilation_id_idx", (RepositoryQuery) test ->
+                        test.compilationRepository.findEventsByCompilationIdIn(List.of(1L, 2L, 3L))),
+                Arguments.of("comments_event_id_idx", (RepositoryQuery) test ->
+                        test.commentRepository.findAllByEventId(1L)),
+                Arguments.of("comments_author_id_idx", (RepositoryQuery) test ->
+                        test.commentRepository.findAllByAuthorId(1L)),
+                Arguments.of("comments_last_updated_idx", (RepositoryQuery) test ->
+                        test.commentRepository.search("text", NOW, 5L, PAGE))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void queryUsesIndex(String index, RepositoryQuery query) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String statement : SEED) {
+                jdbcTemplate.execute(statement);
+            }
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            List<RecordedStatement> statements = StatementRecorder.start();
+            try {
+                query.run(this);
+            } finally {
+                StatementRecorder.stop();
+            }
+            assertFalse(statements.isEmpty(), "No statement was executed");
+            RecordedStatement statement = statements.get(0);
+            String plan = explain(statement);
+            assertTrue(plan.contains(index), "Plan does not use " + index + ":\n" + statement.sql + "\n" + plan);
+
+            jdbcTemplate.execute("DROP INDEX " + index);
+            String planWithoutIndex = explain(statement);
+            if (SUBPLAN_INDEXES.contains(index)) {
+                assertTrue(buffers(planWithoutIndex) > buffers(plan),
+                        "Plan without " + index + " does not read more buffers:\n" + plan + "\n" + planWithoutIndex);
+            } else {
+                assertTrue(cost(planWithoutIndex) > cost(plan),
+                        "Plan without " + index + " is not more expensive:\n" + planWithoutIndex);
+            }
+            status.setRollbackOnly();
+        });
+    }
+
+    private static double cost(String plan) {
+        Matcher matcher = TOTAL_COST.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    /**
+     * Method returns the number of buffers read by the whole plan, they are reported first for its top node
+     */
+    private static long buffers(String plan) {
+        Matcher matcher = BUFFERS.matcher(plan);
+        assertTrue(matcher.find(), plan);
+        long buffers = 0;
+        Matcher pages = PAGES.matcher(matcher.group(1));
+        while (pages.find()) {
+            buffers += Long.parseLong(pages.group(1));
+        }
+        return buffers;
+    }
+
+    private String explain(RecordedStatement statement) {
+        List<String> lines = jdbcTemplate.query(connection -> {
+            PreparedStatement explain = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + statement.sql);
+            statement.bind(explain);
+            return explain;
+        }, (rs, rowNum) -> rs.getString(1));
+        return String.join("\n", lines);
+    }
+
+    interface RepositoryQuery {
+        void run(QueryPlanTest test);
+    }
+
+    /**
+     * Statement prepared by Hibernate with the calls binding its parameters
+     */
+    static class RecordedStatement {
+        private final String sql;
+        private final List<Method> setters = new ArrayList<>();
+        private final List<Object[]> arguments = new ArrayList<>();
+
+        RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Method binds the recorded parameter values to another statement with the same parameters
+         */
+        void bind(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < setters.size(); i++) {
+                try {
+                    setters.get(i).invoke(statement, arguments.get(i));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    throw (SQLException) e.getCause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Data source wrapper recording statements prepared by the current thread while recording is started
+     */
+    @TestConfiguration
+    static class StatementRecorder {
+        private static final ThreadLocal<List<RecordedStatement>> STATEMENTS = new ThreadLocal<>();
+
+        static List<RecordedStatement> start() {
+            List<RecordedStatement> statements = new ArrayList<>();
+            STATEMENTS.set(statements);
+            return statements;
+        }
+
+        static void stop() {
+            STATEMENTS.remove();
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource((DataSource) bean) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return recording(super.getConnection());
+                        }
+
+                        @Override
+                        public Connection getConnection(String username, String password) throws SQLException {
+                            return recording(super.getConnection(username, password));
+                        }
+                    };
+                }
+            };
+        }
+
+        private static Connection recording(Connection connection) {
+            return proxy(Connection.class, connection, (method, args, result) -> {
+                List<RecordedStatement> statements = STATEMENTS.get();
+                if (statements == null || !method.getName().equals("prepareStatement")) {
+                    return result;
+                }
+                RecordedStatement statement = new RecordedStatement((String) args[0]);
+                statements.add(statement);
+                return proxy(PreparedStatement.class, (PreparedStatement) result, (setter, values, ignored) -> {
+                    if (setter.getName().startsWith("set") && values != null && values.length > 1
+                            && values[0] instanceof Integer) {
+                        statement.setters.add(setter);
+                        statement.arguments.add(values);
+                    }
+                    return ignored;
+                });
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Interceptor interceptor) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return interceptor.intercept(method, args, result);
+            });
+        }
+
+        interface Interceptor {
+            Object intercept(Method method, Object[] args, Object result);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.ewm;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Inserts rows for tests directly with SQL, so the data does not depend on the services under test
+ */
+public class TestData {
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE comments, event_compilation, compilations, requests, events, locations, " +
+                "categories, users CASCADE");
+    }
+
+    public long user(String name) {
+        return insert("INSERT INTO users (name, email) VALUES (?, ?) RETURNING id", name, name + "@mail.ru");
+    }
+
+    public long category(String name) {
+        return insert("INSERT INTO categories (name) VALUES (?) RETURNING id", name);
+    }
+
+    /**
+     * Method inserts a location with quantised coordinates computed like in LocationRegistry
+     */
+    public long location(double lat, double lon) {
+        int latQ = (int) Math.rint((float) lat * 100_000d);
+        int lonQ = (int) Math.rint((float) lon * 100_000d);
+        return insert("INSERT INTO locations (lat, lon, lat_q, lon_q) VALUES (?, ?, ?, ?) RETURNING id",
+                lat, lon, latQ, lonQ);
+    }
+
+    public long event(String title, long categoryId, long initiatorId, long locationId, String state,
+                      LocalDateTime eventDate, long participantLimit, boolean requestModeration) {
+        return insert("INSERT INTO events (annotation, category_id, confirmed_requests, created_on, description, " +
+                        "event_date, initiator_id, location_id, paid, participant_limit, published_on, " +
+                        "request_moderation, state, title, views) " +
+                        "VALUES (?, ?, 0, ?, ?, ?, ?, ?, false, ?, ?, ?, ?, ?, 0) RETURNING id",
+                "Annotation of " + title + ", long enough to be valid", categoryId,
+                Timestamp.valueOf(LocalDateTime.now().minusDays(1)), "Description of " + title,
+                Timestamp.valueOf(eventDate), initiatorId, locationId, participantLimit,
+                Timestamp.valueOf(LocalDateTime.now().minusHours(1)), requestModeration, state, title);
+    }
+
+    public long compilation(String title, boolean pinned, long... eventIds) {
+        long id = insert("INSERT INTO compilations (pinned, title) VALUES (?, ?) RETURNING id", pinned, title);
+        for (long eventId : eventIds) {
+            jdbcTemplate.update("INSERT INTO event_compilation (event_id, compilation_id) VALUES (?, ?)",
+                    eventId, id);
+        }
+        return id;
+    }
+
+    private long insert(String sql, Object... args) {
+        Long id = jdbcTemplate.queryForObject(sql, Long.class, args);
+        if (id == null) {
+            throw new IllegalStateException("No id was returned by " + sql);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.ewm.event.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that exports of events report bad parameters with an error status instead of an empty body
+ */
+@AutoConfigureMockMvc
+class EventExportTest extends EmbeddedPostgresTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        TestData testData = new TestData(jdbcTemplate);
+        testData.clear();
+        testData.event("Event", testData.category("Category"), testData.user("user"), testData.location(55.0, 37.0),
+                "PUBLISHED", LocalDateTime.now().plusDays(1), 0, false);
+    }
+
+    @Test
+    void csvExportWritesHeaderAndEvents() throws Exception {
+        mockMvc.perform(get("/admin/events").accept("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("id,title,")))
+                .andExpect(content().string(containsString(",Event,")));
+    }
+
+    @Test
+    void emptyCsvExportWritesHeader() throws Exception {
+        mockMvc.perform(get("/admin/events").param("states", "CANCELED").accept("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("id,title,")));
+    }
+
+    @Test
+    void csvExportWithBadDateIsBadRequest() throws Exception {
+        mockMvc.perform(get("/admin/events").param("rangeStart", "yesterday").accept("text/csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").exists());
+    }
+
+    @Test
+    void ndjsonExportWithBadDateIsBadRequest() throws Exception {
+        mockMvc.perform(get("/admin/events").param("rangeEnd", "tomorrow").accept("application/x-ndjson"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").exists());
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.ewm.event.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+import ru.practicum.ewm.category.exception.CategoryNotFoundException;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.dto.NewEventDto;
+import ru.practicum.ewm.event.dto.UpdateEventUserRequest;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.user.exception.UserNotFoundException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of creating and updating events by their initiators, whose user, category and location are looked up
+ * before the event is saved. Locations saved by the services stay cached after the tables are cleared,
+ * so every test uses its own coordinates
+ */
+class EventAuthorTest extends EmbeddedPostgresTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String ANNOTATION = "Annotation of the concert, long enough to be valid";
+    private static final String DESCRIPTION = "Description of the concert, long enough to be valid";
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EventService eventService;
+    private TestData testData;
+    private long initiatorId;
+    private long categoryId;
+    private long locationId;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+        testData.clear();
+        initiatorId = testData.user("initiator");
+        categoryId = testData.category("Concerts");
+        locationId = testData.location(55.75, 37.61);
+    }
+
+    @Test
+    void eventIsCreatedAtSavedOrNewLocation() {
+        EventFullDto atSavedLocation = eventService.create(initiatorId, newEvent(55.75, 37.61));
+        EventFullDto atNewLocation = eventService.create(initiatorId, newEvent(59.93, 30.31));
+
+        assertEquals(locationId, atSavedLocation.getLocation().getId());
+        assertEquals(initiatorId, atNewLocation.getInitiator().getId());
+        assertEquals(categoryId, atNewLocation.getCategory().getId());
+        assertEquals(atNewLocation.getLocation().getId(), jdbcTemplate.queryForObject("SELECT location_id " +
+                "FROM events WHERE id = ?", Long.class, atNewLocation.getId()));
+        assertEquals(2, countRows("locations"));
+    }
+
+    @Test
+    void eventOfMissingUserIsNotCreated() {
+        assertThrows(UserNotFoundException.class, () -> eventService.create(Long.MAX_VALUE, newEvent(1, 1)));
+
+        assertEquals(0, countRows("events"));
+        assertEquals(1, countRows("locations"));
+    }
+
+    @Test
+    void eventIsUpdatedWithLookedUpCategoryAndLocation() {
+        long eventId = event();
+        long otherCategoryId = testData.category("Exhibitions");
+        UpdateEventUserRequest request = new UpdateEventUserRequest();
+        request.setCategory(otherCategoryId);
+        request.setLocation(new Location(null, 43.58, 39.72, null, null));
+
+        EventFullDto event = eventService.updateEventByAuthor(initiatorId, eventId, request);
+
+        assertEquals(otherCategoryId, event.getCategory().getId());
+        assertEquals(43.58, event.getLocation().getLat());
+        assertEquals(otherCategoryId, jdbcTemplate.queryForObject("SELECT category_id FROM events WHERE id = ?",
+                Long.class, eventId));
+    }
+
+    @Test
+    void eventWithMissingCategoryIsNotUpdated() {
+        long eventId = event();
+        UpdateEventUserRequest request = new UpdateEventUserRequest();
+        request.setCategory(Long.MAX_VALUE);
+        request.setTitle("Changed title");
+
+        assertThrows(CategoryNotFoundException.class,
+                () -> eventService.updateEventByAuthor(initiatorId, eventId, request));
+
+        assertEquals("Concert", jdbcTemplate.queryForObject("SELECT title FROM events WHERE id = ?", String.class,
+                eventId));
+    }
+
+    private long event() {
+        return testData.event("Concert", categoryId, initiatorId, locationId, "PENDING",
+                LocalDateTime.now().plusDays(1), 0, true);
+    }
+
+    private NewEventDto newEvent(double lat, double lon) {
+        return new NewEventDto(ANNOTATION, categoryId, DESCRIPTION,
+                LocalDateTime.now().plusDays(1).format(FORMATTER), new Location(null, lat, lon, null, null),
+                false, 0L, true, "Concert");
+    }
+
+    private long countRows(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
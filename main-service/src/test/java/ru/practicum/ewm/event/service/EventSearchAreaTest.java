@@ -0,0 +1,74 @@
+package ru.practicum.ewm.event.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+import ru.practicum.ewm.event.dto.EventShortDto;
+import ru.practicum.ewm.event.model.UserSearchParameters;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that user searches with lat, lon and radius return events within the distance, whatever the number
+ * of locations in the area
+ */
+class EventSearchAreaTest extends EmbeddedPostgresTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EventService eventService;
+
+    @BeforeEach
+    void setUp() {
+        TestData testData = new TestData(jdbcTemplate);
+        testData.clear();
+        long category = testData.category("Category");
+        long user = testData.user("user");
+        LocalDateTime eventDate = LocalDateTime.now().plusDays(1);
+        testData.event("Kremlin concert", category, user, testData.location(55.7520, 37.6175), "PUBLISHED",
+                eventDate, 0, false);
+        // About 5 km from the Kremlin
+        testData.event("Luzhniki concert", category, user, testData.location(55.7158, 37.5537), "PUBLISHED",
+                eventDate, 0, false);
+        // About 12 km from the Kremlin, inside the bounding box of 10 km around it
+        testData.event("Izmailovo concert", category, user, testData.location(55.8320, 37.7575), "PUBLISHED",
+                eventDate, 0, false);
+        // About 630 km from the Kremlin
+        testData.event("Hermitage concert", category, user, testData.location(59.9398, 30.3146), "PUBLISHED",
+                eventDate, 0, false);
+        testData.event("Fiji concert", category, user, testData.location(-17.7134, 179.9990), "PUBLISHED",
+                eventDate, 0, false);
+        // More locations in the area than PostgreSQL accepts parameters of a statement
+        jdbcTemplate.update("INSERT INTO locations (lat, lon, lat_q, lon_q) " +
+                "SELECT 55.6 + i / 200 * 0.001, 37.4 + i % 200 * 0.001, 5560000 + i / 200 * 100, " +
+                "3740000 + i % 200 * 100 FROM generate_series(0, 39999) i");
+    }
+
+    @ParameterizedTest(name = "{0} {1} within {4} km of {2}, {3}")
+    @CsvSource(delimiter = '|', value = {
+            "       | EVENT_DATE |  55.7520 |  37.6175 |   1 | Kremlin concert",
+            "       | VIEWS      |  55.7520 |  37.6175 |  10 | Kremlin concert,Luzhniki concert",
+            "concert| EVENT_DATE |  55.7520 |  37.6175 |  10 | Kremlin concert,Luzhniki concert",
+            "concert| VIEWS      |  55.7520 |  37.6175 |  15 | Kremlin concert,Luzhniki concert,Izmailovo concert",
+            "concert| RELEVANCE  |  59.9000 |  30.3000 |  10 | Hermitage concert",
+            "       | EVENT_DATE | -17.7134 | -179.999 |   1 | Fiji concert",
+            "       | EVENT_DATE |   0.0000 |   0.0000 | 100 | ''"
+    })
+    void searchFindsEventsWithinRadius(String text, String sort, double lat, double lon, double radius,
+                                       String titles) {
+        List<EventShortDto> events = eventService.get(new UserSearchParameters(text, null, null, null, null, false,
+                sort, 0, 10, null, lat, lon, radius), new MockHttpServletRequest("GET", "/events")).getItems();
+        Set<String> expected = titles.isEmpty() ? Set.of() : Set.of(titles.split(","));
+        assertEquals(expected, events.stream().map(EventShortDto::getTitle).collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,165 @@
+package ru.practicum.ewm.event.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+import ru.practicum.ewm.event.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.ewm.event.dto.EventRequestStatusUpdateResult;
+import ru.practicum.ewm.event.exception.ParticipantLimitIsFullException;
+import ru.practicum.ewm.event.exception.StatusNotPendingException;
+import ru.practicum.ewm.request.dto.ParticipationRequestDto;
+import ru.practicum.ewm.request.exception.RequestNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of confirming and rejecting requests by the initiator: the update applies to all given requests or,
+ * when any of them is not a pending request to the event, to none of them
+ */
+class RequestStatusUpdateTest extends EmbeddedPostgresTest {
+    private static final int MANY = 10_000;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EventService eventService;
+    private TestData testData;
+    private long initiatorId;
+    private long categoryId;
+    private long locationId;
+    private int requesters;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+        testData.clear();
+        initiatorId = testData.user("initiator");
+        categoryId = testData.category("Concerts");
+        locationId = testData.location(55.75, 37.61);
+    }
+
+    @Test
+    void requestOfAnotherEventRejectsWholeUpdate() {
+        long eventId = event(0);
+        long otherEventId = event(0);
+        List<Long> requestIds = requests(eventId, 3);
+        long foreignId = requests(otherEventId, 1).get(0);
+        List<Long> ids = new ArrayList<>(requestIds);
+        ids.add(1, foreignId);
+
+        RequestNotFoundException e = assertThrows(RequestNotFoundException.class, () -> update(eventId, ids));
+
+        assertTrue(e.getMessage().contains("id=" + foreignId), e.getMessage());
+        assertEquals(0, countRequests(eventId, "CONFIRMED"));
+        assertEquals(0, countRequests(otherEventId, "CONFIRMED"));
+        assertEquals(0, confirmedRequests(eventId));
+    }
+
+    @Test
+    void missingRequestRejectsWholeUpdate() {
+        long eventId = event(0);
+        List<Long> ids = new ArrayList<>(requests(eventId, 3));
+        ids.add(Long.MAX_VALUE);
+
+        assertThrows(RequestNotFoundException.class, () -> update(eventId, ids));
+
+        assertEquals(3, countRequests(eventId, "PENDING"));
+    }
+
+    @Test
+    void requestThatIsNotPendingRejectsWholeUpdate() {
+        long eventId = event(0);
+        List<Long> ids = requests(eventId, 3);
+        jdbcTemplate.update("UPDATE requests SET status = 'REJECTED' WHERE id = ?", ids.get(2));
+
+        assertThrows(StatusNotPendingException.class, () -> update(eventId, ids));
+
+        assertEquals(2, countRequests(eventId, "PENDING"));
+    }
+
+    @Test
+    void requestsOverLimitAreRejected() {
+        long eventId = event(5);
+        List<Long> ids = requests(eventId, 8);
+
+        EventRequestStatusUpdateResult result = update(eventId, ids);
+
+        assertEquals(5, result.getConfirmedRequests().size());
+        assertEquals(3, result.getRejectedRequests().size());
+        assertEquals(ids.subList(0, 5), ids(result.getConfirmedRequests()));
+        assertEquals(5, confirmedRequests(eventId));
+        assertEquals(3, countRequests(eventId, "REJECTED"));
+        List<Long> moreIds = requests(eventId, 1);
+        assertThrows(ParticipantLimitIsFullException.class, () -> update(eventId, moreIds));
+        assertEquals(1, countRequests(eventId, "PENDING"));
+    }
+
+    @Test
+    void manyRequestsAreConfirmedWithinSecond() {
+        long eventId = event(0);
+        List<Long> ids = requests(eventId, MANY);
+        // Duplicate ids are confirmed once
+        List<Long> idsWithDuplicates = new ArrayList<>(ids);
+        idsWithDuplicates.addAll(ids.subList(0, 10));
+
+        long start = System.nanoTime();
+        EventRequestStatusUpdateResult result = update(eventId, idsWithDuplicates);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 1000, MANY + " requests were confirmed in " + elapsedMs + " ms");
+        assertEquals(MANY, result.getConfirmedRequests().size());
+        assertEquals(ids, ids(result.getConfirmedRequests()));
+        assertEquals(MANY, confirmedRequests(eventId));
+        assertEquals(MANY, countRequests(eventId, "CONFIRMED"));
+    }
+
+    private EventRequestStatusUpdateResult update(long eventId, List<Long> ids) {
+        return eventService.setStatusForRequestsByCurrentUser(initiatorId, eventId,
+                new EventRequestStatusUpdateRequest(ids, "CONFIRMED"));
+    }
+
+    private long event(long participantLimit) {
+        return testData.event("Concert", categoryId, initiatorId, locationId, "PUBLISHED",
+                LocalDateTime.now().plusDays(1), participantLimit, true);
+    }
+
+    /**
+     * Method inserts pending requests of new users to event
+     * @return Method returns ids of requests in the order they were created
+     */
+    private List<Long> requests(long eventId, int count) {
+        String prefix = "requester" + (++requesters) + "_";
+        List<Long> ids = jdbcTemplate.queryForList("WITH u AS (INSERT INTO users (name, email) " +
+                        "SELECT ? || i, ? || i || '@mail.ru' FROM generate_series(1, ?) i RETURNING id) " +
+                        "INSERT INTO requests (created, event_id, requester_id, status) " +
+                        "SELECT now() + u.id * interval '1 millisecond', ?, u.id, 'PENDING' FROM u ORDER BY u.id " +
+                        "RETURNING id", Long.class, prefix, prefix, count, eventId);
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private long countRequests(long eventId, String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = ?",
+                Long.class, eventId, status);
+    }
+
+    private long confirmedRequests(long eventId) {
+        return jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?", Long.class,
+                eventId);
+    }
+
+    private static List<Long> ids(List<ParticipationRequestDto> requests) {
+        List<Long> ids = new ArrayList<>(requests.size());
+        requests.forEach(request -> ids.add(request.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.ewm.event.view;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.event.repository.EventRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests that views counted while flushes run are flushed exactly once and idle counters are removed
+ */
+class EventViewCounterTest {
+    private static final int EVENTS = 4;
+    private static final int VIEWERS = 8;
+    private static final int VIEWS_PER_VIEWER = 200_000;
+    private final Map<Long, Long> stored = new ConcurrentHashMap<>();
+    private EventRepository eventRepository;
+    private EventViewCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(EventRepository.class);
+        doAnswer(invocation -> {
+            Map<Long, Long> views = invocation.getArgument(0);
+            views.forEach((eventId, added) -> stored.merge(eventId, added, Long::sum));
+            return null;
+        }).when(eventRepository).addViews(anyMap());
+        counter = new EventViewCounter(eventRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 60_000);
+    }
+
+    @Test
+    void viewsCountedDuringFlushesAreFlushedOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(VIEWERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean viewing = new AtomicBoolean(true);
+        List<Future<?>> viewers = new ArrayList<>();
+        try {
+            for (int v = 0; v < VIEWERS; v++) {
+                int viewer = v;
+                viewers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < VIEWS_PER_VIEWER; i++) {
+                        // Every viewer stops viewing its own event halfway, so its counter becomes idle and is removed
+                        long eventId = i < VIEWS_PER_VIEWER / 2 ? viewer : viewer % EVENTS;
+                        counter.increment(eventId);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                start.await();
+                while (viewing.get()) {
+                    counter.flush();
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> viewer : viewers) {
+                viewer.get();
+            }
+            viewing.set(false);
+            flusher.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        counter.flush();
+        counter.flush();
+
+        long total = 0;
+        for (long eventId = 0; eventId < VIEWERS; eventId++) {
+            assertEquals(0, counter.getPendingViews(eventId));
+            assertEquals(stored.getOrDefault(eventId, 0L), counter.getFlushedViews(eventId));
+            total += stored.getOrDefault(eventId, 0L);
+        }
+        assertEquals((long) VIEWERS * VIEWS_PER_VIEWER, total);
+        assertEquals(VIEWS_PER_VIEWER / 2 * 3, stored.get(0L));
+        assertEquals(VIEWS_PER_VIEWER / 2, stored.get((long) EVENTS));
+    }
+
+    @Test
+    void viewsAreReturnedWhenFlushFails() {
+        counter.increment(1L);
+        counter.increment(1L);
+        doThrow(new IllegalStateException("Connection refused")).when(eventRepository).addViews(anyMap());
+
+        counter.flush();
+
+        assertEquals(2, counter.getPendingViews(1L));
+        assertEquals(0, counter.getFlushedViews(1L));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.ewm.execution;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.compilation.service.CompilationService;
+
+import javax.servlet.AsyncListener;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that an asynchronous request not completed in time is answered with 503
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "ewm.async.enabled=true")
+class AsyncRequestTimeoutTest extends EmbeddedPostgresTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private CompilationService compilationService;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void timedOutRequestIsServiceUnavailable() throws Exception {
+        when(compilationService.get(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        MvcResult result = mockMvc.perform(get("/compilations"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.reason").value("The request was not completed in time"));
+    }
+}
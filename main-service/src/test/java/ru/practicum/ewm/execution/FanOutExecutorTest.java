@@ -0,0 +1,94 @@
+package ru.practicum.ewm.execution;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.execution.FanOutExecutor.Fork;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a cancelled lookup does not outlive the request: it is skipped if it has not started
+ * and waited for if it is running
+ */
+class FanOutExecutorTest {
+    private FanOutExecutor fanOut;
+
+    @BeforeEach
+    void setUp() {
+        fanOut = new FanOutExecutor(new SimpleMeterRegistry(), true, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    void lookupThatHasNotStartedIsSkipped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // The only pool thread is busy, so the next lookup waits in the queue
+        Fork<Boolean> busy = fanOut.fork(() -> await(release));
+        AtomicInteger runs = new AtomicInteger();
+        Fork<Integer> queued = fanOut.fork(runs::incrementAndGet);
+
+        queued.cancel();
+        release.countDown();
+        busy.join();
+        fanOut.fork(() -> true).join();
+
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void runningLookupIsWaitedFor() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        Fork<Boolean> running = fanOut.fork(() -> {
+            started.countDown();
+            sleep();
+            finished.set(true);
+            throw new IllegalStateException("Stats server is unavailable");
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        running.cancel();
+
+        assertTrue(finished.get());
+    }
+
+    @Test
+    void joinedLookupIsNotAffected() {
+        AtomicInteger runs = new AtomicInteger();
+        Fork<Integer> fork = fanOut.fork(runs::incrementAndGet);
+
+        assertEquals(1, fork.join());
+        fork.cancel();
+
+        assertEquals(1, runs.get());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
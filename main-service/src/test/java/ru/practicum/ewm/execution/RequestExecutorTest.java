@@ -0,0 +1,34 @@
+package ru.practicum.ewm.execution;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that handlers returning futures are completed on the request thread when asynchronous execution is disabled
+ */
+@AutoConfigureMockMvc
+class RequestExecutorTest extends EmbeddedPostgresTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void completedFutureIsWrittenWithoutAsyncDispatch() throws Exception {
+        mockMvc.perform(get("/compilations"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void failedWorkIsHandledWithoutAsyncDispatch() throws Exception {
+        mockMvc.perform(get("/compilations/{compId}", Long.MAX_VALUE))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,106 @@
+package ru.practicum.ewm.monitoring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+import ru.practicum.ewm.compilation.service.CompilationService;
+import ru.practicum.ewm.event.model.AdminSearchParameters;
+import ru.practicum.ewm.event.model.UserSearchParameters;
+import ru.practicum.ewm.event.service.EventService;
+
+import java.time.LocalDateTime;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that listings execute the same number of SQL statements for a page of a few rows and for a page
+ * of many rows with distinct categories, initiators and locations, so an N+1 regression fails the build.
+ * Statements are counted by {@link QueryCountInspector} inside one transaction, like a request
+ * with open-in-view, so lazy loading is counted too
+ */
+class QueryCountTest extends EmbeddedPostgresTest {
+    private static final int FEW = 2;
+    private static final int MANY = 20;
+    private static final long MAX_STATEMENTS = 5;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private CompilationService compilationService;
+    private TestData testData;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+    }
+
+    @Test
+    void eventsPageExecutesConstantNumberOfStatements() {
+        assertConstantStatements(this::seedEvents, () -> eventService.get(new UserSearchParameters(null, null,
+                null, null, null, false, "EVENT_DATE", 0, MANY, null, null, null, null),
+                new MockHttpServletRequest("GET", "/events")));
+    }
+
+    @Test
+    void compilationsPageExecutesConstantNumberOfStatements() {
+        assertConstantStatements(count -> {
+            long[] eventIds = seedEvents(3 * count);
+            for (int i = 0; i < count; i++) {
+                testData.compilation("Compilation " + i, i % 2 == 0, eventIds[3 * i], eventIds[3 * i + 1],
+                        eventIds[3 * i + 2]);
+            }
+        }, () -> compilationService.get(null, 0, MANY));
+    }
+
+    @Test
+    void adminEventsPageExecutesConstantNumberOfStatements() {
+        assertConstantStatements(this::seedEvents, () -> eventService.getEventsByAdmin(
+                new AdminSearchParameters(null, null, null, null, null, 0, MANY, null)));
+    }
+
+    /**
+     * Counts statements of listing after seeding a few rows and after seeding many rows
+     */
+    private void assertConstantStatements(IntConsumer seed, Runnable listing) {
+        testData.clear();
+        seed.accept(FEW);
+        long fewStatements = countStatements(listing);
+        testData.clear();
+        seed.accept(MANY);
+        long manyStatements = countStatements(listing);
+        assertEquals(fewStatements, manyStatements, "Statements depend on the number of rows");
+        assertTrue(manyStatements <= MAX_STATEMENTS, manyStatements + " statements were executed");
+    }
+
+    private long countStatements(Runnable listing) {
+        return transactionTemplate.execute(status -> {
+            QueryCountInspector.start();
+            try {
+                listing.run();
+            } finally {
+                status.setRollbackOnly();
+            }
+            return QueryCountInspector.stop();
+        });
+    }
+
+    private long[] seedEvents(int count) {
+        long[] eventIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            eventIds[i] = testData.event("Event " + i, testData.category("Category " + i),
+                    testData.user("user" + i), testData.location(55.0 + i / 100.0, 37.0 + i / 100.0), "PUBLISHED",
+                    LocalDateTime.now().plusDays(i + 1), 0, false);
+        }
+        return eventIds;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.ewm.request.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.TestData;
+import ru.practicum.ewm.event.exception.ParticipantLimitIsFullException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress test of joining an event without moderation: many users join at the same moment,
+ * exactly as many requests as the participant limit must be confirmed
+ */
+class RequestServiceConcurrencyTest extends EmbeddedPostgresTest {
+    private static final int USERS = 40;
+    private static final int LIMIT = 7;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private RequestService requestService;
+    private TestData testData;
+
+    @BeforeEach
+    void setUp() {
+        testData = new TestData(jdbcTemplate);
+        testData.clear();
+    }
+
+    @Test
+    void concurrentRequestsDoNotOversellEvent() throws Exception {
+        long eventId = testData.event("Concert", testData.category("Concerts"), testData.user("initiator"),
+                testData.location(55.75, 37.61), "PUBLISHED", LocalDateTime.now().plusDays(1), LIMIT, false);
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(testData.user("participant" + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (long userId : userIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        requestService.create(userId, eventId);
+                        confirmed.incrementAndGet();
+                    } catch (ParticipantLimitIsFullException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(LIMIT, confirmed.get());
+        assertEquals(USERS - LIMIT, rejected.get());
+        assertEquals(LIMIT, jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?",
+                Long.class, eventId));
+        assertEquals(LIMIT, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests " +
+                "WHERE event_id = ? AND status = 'CONFIRMED'", Long.class, eventId));
+        assertEquals(LIMIT, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE event_id = ?",
+                Long.class, eventId));
+    }
+}
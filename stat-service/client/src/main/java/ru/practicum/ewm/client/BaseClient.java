@@ -1,66 +1,75 @@
 package ru.practicum.ewm.client;
 
-import java.util.List;
+import java.time.Duration;
 import java.util.Map;
+import java.util.function.Consumer;
 
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+/**
+ * Blocking facade over a non-blocking WebClient. Every call is bounded by the timeout, so a slow server
+ * cannot hold the calling thread longer than that
+ */
 public class BaseClient {
-    protected final RestTemplate rest;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    protected final WebClient web;
+    protected final Duration timeout;
 
-    public BaseClient(RestTemplate rest) {
-        this.rest = rest;
+    public BaseClient(WebClient web, Duration timeout) {
+        this.web = web;
+        this.timeout = timeout;
     }
 
     protected ResponseEntity<Object> get(String path, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, parameters, null);
+        return handleErrors(web.get()
+                .uri(path, parameters == null ? Map.of() : parameters)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toEntity(Object.class)
+                .timeout(timeout));
     }
 
     protected <T> ResponseEntity<Object> post(String path, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, null, body);
+        return handleErrors(web.post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .toEntity(Object.class)
+                .timeout(timeout));
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders());
-
-        ResponseEntity<Object> ewmServerResponse;
-        try {
-            if (parameters != null) {
-                ewmServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                ewmServerResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
-        } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+    /**
+     * Sends a GET request and passes every object of a newline-delimited JSON response to the consumer
+     * on the calling thread as soon as it is read, without buffering the whole response.
+     * The timeout applies to the wait for each next object, not to the whole stream
+     */
+    protected <T> void getStream(String path, Map<String, Object> parameters, Class<T> type, Consumer<T> consumer) {
+        Iterable<T> objects = web.get()
+                .uri(path, parameters)
+                .accept(APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(type)
+                .timeout(timeout)
+                .toIterable();
+        for (T object : objects) {
+            consumer.accept(object);
         }
-        return prepareGatewayResponse(ewmServerResponse);
     }
 
-    private HttpHeaders defaultHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
-        return headers;
-    }
-
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
-        }
-
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
-
-        if (response.hasBody()) {
-            return responseBuilder.body(response.getBody());
+    private static ResponseEntity<Object> handleErrors(Mono<ResponseEntity<Object>> response) {
+        try {
+            ResponseEntity<Object> result = response.block();
+            return result == null ? ResponseEntity.status(HttpStatus.NO_CONTENT).build() : result;
+        } catch (WebClientResponseException e) {
+            return ResponseEntity.status(e.getRawStatusCode()).body(e.getResponseBodyAsByteArray());
         }
-
-        return responseBuilder.build();
     }
 }
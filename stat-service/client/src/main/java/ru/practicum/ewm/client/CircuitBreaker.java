@@ -0,0 +1,65 @@
+package ru.practicum.ewm.client;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consecutive-failure circuit breaker. After failureThreshold failures in a row calls are rejected for openMs,
+ * then a single trial call is let through: its success closes the breaker, its failure opens it again
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMs * 1_000_000L;
+    }
+
+    /**
+     * Method checks if a call may be made now
+     * @return Method returns false while the breaker is open or a trial call is already in flight
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            log.info("Circuit breaker {} is half-open, trying a call", name);
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuit breaker {} is closed", name);
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            log.warn("Circuit breaker {} is open after {} failures, calls are rejected for {} ms", name, failures,
+                    openNanos / 1_000_000L);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
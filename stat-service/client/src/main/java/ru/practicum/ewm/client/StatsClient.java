@@ -1,35 +1,94 @@
 package ru.practicum.ewm.client;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import ru.practicum.ewm.model.EndpointHitDto;
+import ru.practicum.ewm.model.VisitorDto;
 
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Client of stats-server. Requests go through a pool of keep-alive connections and are bounded by a timeout.
+ * Failures open a circuit breaker, while it is open calls are not sent and fall back at once:
+ * writes and statistics return 503, uniqueness checks assume the view is unique and streams throw
+ */
+@Slf4j
 @Service
 public class StatsClient extends BaseClient {
+    private final MeterRegistry meterRegistry;
+    private final ConnectionProvider connectionProvider;
+    private final CircuitBreaker circuitBreaker;
+
     @Autowired
-    public StatsClient(@Value("http://stats-server:9090") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("http://stats-server:9090") String serverUrl,
+                       WebClient.Builder builder,
+                       MeterRegistry meterRegistry,
+                       @Value("${stats-client.pool.max-connections:50}") int maxConnections,
+                       @Value("${stats-client.pool.max-idle-time-ms:30000}") long maxIdleTimeMs,
+                       @Value("${stats-client.connect-timeout-ms:1000}") int connectTimeoutMs,
+                       @Value("${stats-client.timeout-ms:2000}") long timeoutMs,
+                       @Value("${stats-client.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                       @Value("${stats-client.circuit-breaker.open-ms:10000}") long openMs) {
+        this(serverUrl, builder, meterRegistry, ConnectionProvider.builder("stats-client")
+                        .maxConnections(maxConnections)
+                        .pendingAcquireTimeout(Duration.ofMillis(timeoutMs))
+                        .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                        .metrics(true)
+                        .build(),
+                connectTimeoutMs, Duration.ofMillis(timeoutMs), new CircuitBreaker("stats-server", failureThreshold,
+                        openMs));
+    }
+
+    private StatsClient(String serverUrl, WebClient.Builder builder, MeterRegistry meterRegistry,
+                        ConnectionProvider connectionProvider, int connectTimeoutMs, Duration timeout,
+                        CircuitBreaker circuitBreaker) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(serverUrl)
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                                .responseTimeout(timeout)))
+                        .build(),
+                timeout
         );
+        this.meterRegistry = meterRegistry;
+        this.connectionProvider = connectionProvider;
+        this.circuitBreaker = circuitBreaker;
+        Gauge.builder("stats.client.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 while calls to stats-server are rejected by the circuit breaker")
+                .register(meterRegistry);
     }
 
     public ResponseEntity<Object> addEndpointHit(String app, String uri, String ip, String timestamp) {
-        return post("/hit", EndpointHitDto.builder()
+        return call("addEndpointHit", () -> post("/hit", EndpointHitDto.builder()
                 .app(app)
                 .uri(uri)
                 .ip(ip)
                 .timestamp(timestamp)
-                .build());
+                .build()), e -> unavailable());
+    }
+
+    public ResponseEntity<Object> addEndpointHits(List<EndpointHitDto> hits) {
+        return call("addEndpointHits", () -> post("/hit/batch", hits), e -> unavailable());
     }
 
     public ResponseEntity<Object> getStats(String start, String end, String[] uris, boolean unique) {
@@ -38,14 +97,16 @@ public class StatsClient extends BaseClient {
                     "start", start,
                     "end", end,
                     "unique", unique);
-            return get("/stats?start={start}&end={end}&unique={unique}", parameters);
+            return call("getStats", () -> get("/stats?start={start}&end={end}&unique={unique}", parameters),
+                    e -> unavailable());
         } else {
             Map<String, Object> parameters = Map.of(
                     "start", start,
                     "end", end,
                     "uris", uris,
                     "unique", unique);
-            return get("/stats?start={start}&end={end}&uris={uris}&unique={unique}", parameters);
+            return call("getStats", () -> get("/stats?start={start}&end={end}&uris={uris}&unique={unique}",
+                    parameters), e -> unavailable());
         }
     }
 
@@ -53,6 +114,70 @@ public class StatsClient extends BaseClient {
         Map<String, Object> parameters = Map.of(
                 "uri", uri,
                 "ip", ip);
-        return Boolean.parseBoolean(get("/unique?uri={uri}&ip={ip}", parameters).getBody().toString());
+        ResponseEntity<Object> response = call("checkIfIpIsUnique", () -> get("/unique?uri={uri}&ip={ip}",
+                parameters), e -> unavailable());
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            // Counting a view twice is better than losing it
+            return true;
+        }
+        return Boolean.parseBoolean(response.getBody().toString());
+    }
+
+    public void streamVisitors(String uriPrefix, Consumer<VisitorDto> consumer) {
+        call("streamVisitors", () -> {
+            getStream("/visitors?uriPrefix={uriPrefix}", Map.of("uriPrefix", uriPrefix), VisitorDto.class, consumer);
+            return null;
+        }, e -> {
+            throw e;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+
+    /**
+     * Makes a call through the circuit breaker and records its latency in the stats.client.calls timer, tagged with
+     * the operation and the outcome: SUCCESS, HTTP_ERROR for a non-2xx response, ERROR when the call threw
+     * an exception or REJECTED when the breaker was open. Exceptions and 5xx responses count as failures
+     * @param fallback function called with the exception instead of throwing it or when the call was rejected
+     */
+    private <T> T call(String operation, Supplier<T> call, Function<RuntimeException, T> fallback) {
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "REJECTED", Timer.start(meterRegistry));
+            return fallback.apply(new IllegalStateException("Circuit breaker for stats-server is open"));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            record(operation, "ERROR", sample);
+            log.warn("Call {} to stats-server failed: {}", operation, e.getMessage());
+            return fallback.apply(e);
+        }
+        HttpStatus status = result instanceof ResponseEntity ? ((ResponseEntity<?>) result).getStatusCode() : null;
+        if (status != null && status.is5xxServerError()) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        record(operation, status == null || status.is2xxSuccessful() ? "SUCCESS" : "HTTP_ERROR", sample);
+        return result;
+    }
+
+    private void record(String operation, String outcome, Timer.Sample sample) {
+        sample.stop(Timer.builder("stats.client.calls")
+                .description("Calls to stats-server")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static ResponseEntity<Object> unavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
     }
 }
@@ -0,0 +1,168 @@
+package ru.practicum.ewm.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import ru.practicum.ewm.model.EndpointHitDto;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous publisher of endpoint hits.
+ * Hits are put on a bounded queue and sent to stats-server's /hit/batch endpoint by a background thread,
+ * so request threads never wait for stats-server. When the queue is full new hits are dropped
+ * (never blocking the caller) and counted in the stats.client.publisher.dropped metric
+ */
+@Slf4j
+@Service
+public class StatsHitPublisher {
+    private final StatsClient client;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int batchSize;
+    private final long lingerMs;
+    // Number of queued or in-flight hits per uri and ip, used to answer uniqueness checks before they are sent
+    private final Map<String, Integer> pendingHits = new ConcurrentHashMap<>();
+    private final Counter droppedHits;
+    private final Counter sentHits;
+    private final Counter failedHits;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public StatsHitPublisher(StatsClient client,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats-client.publisher.queue-capacity:10000}") int queueCapacity,
+                             @Value("${stats-client.publisher.batch-size:100}") int batchSize,
+                             @Value("${stats-client.publisher.linger-ms:200}") long lingerMs) {
+        this.client = client;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        Gauge.builder("stats.client.publisher.queue.size", queue, BlockingQueue::size)
+                .description("Number of hits waiting to be sent to stats-server")
+                .register(meterRegistry);
+        this.droppedHits = Counter.builder("stats.client.publisher.dropped")
+                .description("Hits dropped because the queue was full")
+                .register(meterRegistry);
+        this.sentHits = Counter.builder("stats.client.publisher.sent")
+                .description("Hits successfully sent to stats-server")
+                .register(meterRegistry);
+        this.failedHits = Counter.builder("stats.client.publisher.failed")
+                .description("Hits lost because stats-server rejected them or was unavailable")
+                .register(meterRegistry);
+        this.worker = new Thread(this::run, "stats-hit-publisher");
+        this.worker.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * Method queues a hit for sending without blocking
+     * @return Method returns false if the queue was full and the hit was dropped
+     */
+    public boolean publish(String app, String uri, String ip, String timestamp) {
+        String key = pendingKey(uri, ip);
+        pendingHits.merge(key, 1, Integer::sum);
+        boolean queued = queue.offer(EndpointHitDto.builder()
+                .app(app)
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .build());
+        if (!queued) {
+            release(key);
+            droppedHits.increment();
+            log.warn("Stats hit queue is full, hit uri={}, ip={} was dropped", uri, ip);
+        }
+        return queued;
+    }
+
+    /**
+     * Method checks if a hit with given uri and ip is queued but not yet sent to stats-server
+     */
+    public boolean isPending(String uri, String ip) {
+        return pendingHits.containsKey(pendingKey(uri, ip));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        List<EndpointHitDto> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            send(remaining);
+        }
+    }
+
+    private void run() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                EndpointHitDto first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    EndpointHitDto next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<EndpointHitDto> batch) {
+        try {
+            ResponseEntity<Object> response = client.addEndpointHits(batch);
+            if (response.getStatusCode().is2xxSuccessful()) {
+                sentHits.increment(batch.size());
+            } else {
+                failedHits.increment(batch.size());
+                log.warn("Stats-server rejected batch of {} hits with status {}", batch.size(), response.getStatusCode());
+            }
+        } catch (RuntimeException e) {
+            failedHits.increment(batch.size());
+            log.warn("Failed to send batch of {} hits to stats-server: {}", batch.size(), e.getMessage());
+        } finally {
+            for (EndpointHitDto hit : batch) {
+                release(pendingKey(hit.getUri(), hit.getIp()));
+            }
+        }
+    }
+
+    private void release(String key) {
+        pendingHits.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static String pendingKey(String uri, String ip) {
+        return uri + " " + ip;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimeSeriesPointDto {
+    private String app;
+    private String uri;
+    private String bucket;
+    private Long hits;
+}
@@ -10,9 +10,9 @@ public class ViewStatsDto {
     private String app;
     private String uri;
     @EqualsAndHashCode.Exclude
-    private Integer hits;
+    private Long hits;
 
-    public void addHit() {
-        this.hits++;
+    public void addHits(long hits) {
+        this.hits += hits;
     }
 }
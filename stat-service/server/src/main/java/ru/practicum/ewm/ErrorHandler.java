@@ -5,11 +5,14 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import javax.validation.ConstraintViolationException;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 
 @RestControllerAdvice("ru.practicum.ewm")
 public class ErrorHandler {
-    @ExceptionHandler(IllegalArgumentException.class)
+    @ExceptionHandler({IllegalArgumentException.class, ConstraintViolationException.class,
+            DateTimeParseException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleBadRequest(Throwable e) {
         return Map.of("Error", e.getMessage());
@@ -1,15 +1,36 @@
 package ru.practicum.ewm.controller;
 
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.ewm.model.EndpointHitDto;
 import ru.practicum.ewm.model.EndpointHitResponse;
+import ru.practicum.ewm.model.TimeSeriesInterval;
 import ru.practicum.ewm.model.ViewStatsDto;
+import ru.practicum.ewm.model.ViewStatsResult;
 import ru.practicum.ewm.service.StatsService;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Контроллер для сохранения и получения статистики посещений сайта
@@ -17,8 +38,15 @@ import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
+@Validated
 public class StatsController {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String APPROXIMATE_HEADER = "X-Stats-Approximate";
+    private static final String RETAINED_SINCE_HEADER = "X-Stats-Retained-Since";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     /**
      * Метод сохраняет данные о посещении эндпоинта
@@ -33,21 +61,103 @@ public class StatsController {
     }
 
     /**
-     * Метод возвращает статистику посещений по определенным uri
+     * Метод сохраняет данные о нескольких посещениях, переданных JSON-массивом
+     *
+     * @param endpointHitDtos список объектов EndpointHitDto, переданный в теле запроса
+     * @return В случае успешного сохранения информации метод сообщает об этом
+     */
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public EndpointHitResponse addEndpointHits(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        return statsService.addEndpointHits(endpointHitDtos);
+    }
+
+    /**
+     * Метод сохраняет данные о нескольких посещениях, переданных в формате NDJSON (один объект на строку).
+     * Посещения сохраняются, только если все строки корректны, иначе пакет отклоняется целиком
+     * с указанием номера строки. Пустое тело - пустой пакет
+     *
+     * @param body тело запроса
+     * @return В случае успешного сохранения информации метод сообщает об этом
+     */
+    @PostMapping(value = "/hit/batch", consumes = APPLICATION_NDJSON)
+    @ResponseStatus(HttpStatus.CREATED)
+    public EndpointHitResponse addEndpointHitsNdjson(InputStream body) throws IOException {
+        List<EndpointHitDto> endpointHitDtos = new ArrayList<>();
+        try (MappingIterator<EndpointHitDto> iterator = objectMapper.readerFor(EndpointHitDto.class).readValues(body)) {
+            iterator.readAll(endpointHitDtos);
+        } catch (JsonProcessingException e) {
+            JsonLocation location = e.getLocation();
+            throw new IllegalArgumentException("Строка " + (location == null ? "?" : location.getLineNr()) +
+                    " не является объектом посещения: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<EndpointHitDto>> violations = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < endpointHitDtos.size(); i++) {
+            for (ConstraintViolation<EndpointHitDto> violation : validator.validate(endpointHitDtos.get(i))) {
+                violations.add(violation);
+                errors.add("Строка " + (i + 1) + ": " + violation.getPropertyPath() + " " + violation.getMessage());
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(String.join("; ", errors), violations);
+        }
+        return statsService.addEndpointHits(endpointHitDtos);
+    }
+
+    /**
+     * Метод возвращает статистику посещений по определенным uri.
+     * Если уникальные посещения оценены по скетчам, ответ содержит заголовок X-Stats-Approximate: true,
+     * если промежуток начинается раньше хранимой статистики, заголовок X-Stats-Retained-Since содержит ее начало
      *
      * @param start  - начало интересующего временного промежутка
      * @param end    - конец интересующего временного промежутка
      * @param uris   - массив uri
      * @param unique - учитывать ли посещения с одного ip как разные
+     * @param approximate - считать ли уникальные посещения приблизительно (ошибка около 1.6%) без чтения всех посещений
      * @return Метод возвращает статистику посещений
      */
     @GetMapping("/stats")
-    @ResponseStatus(HttpStatus.OK)
-    public List<ViewStatsDto> getStats(@RequestParam(name = "start") String start,
+    public ResponseEntity<List<ViewStatsDto>> getStats(@RequestParam(name = "start") String start,
                                        @RequestParam(name = "end") String end,
                                        @RequestParam(name = "uris", required = false) String[] uris,
-                                       @RequestParam(name = "unique", defaultValue = "false") boolean unique) {
-        return statsService.getStats(start, end, uris, unique);
+                                       @RequestParam(name = "unique", defaultValue = "false") boolean unique,
+                                       @RequestParam(name = "approximate", defaultValue = "false") boolean approximate) {
+        ViewStatsResult result = statsService.getStats(start, end, uris, unique, approximate);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.isApproximate()) {
+            response.header(APPROXIMATE_HEADER, "true");
+        }
+        if (result.getRetainedSince() != null) {
+            response.header(RETAINED_SINCE_HEADER, result.getRetainedSince().format(FORMATTER));
+        }
+        return response.body(result.getStats());
+    }
+
+    /**
+     * Метод возвращает JSON-массив количества посещений определенных uri по интервалам.
+     * Массив пишется в ответ по мере чтения строк из базы данных. Статус ошибки возвращается только для ошибок
+     * до записи первой точки
+     *
+     * @param start    - начало интересующего временного промежутка
+     * @param end      - конец интересующего временного промежутка
+     * @param uris     - массив uri
+     * @param interval - длина интервала: MINUTE, HOUR или DAY
+     * @param response - ответ, в который пишется массив
+     */
+    @GetMapping("/stats/timeseries")
+    public void getTimeSeries(@RequestParam(name = "start") String start,
+                              @RequestParam(name = "end") String end,
+                              @RequestParam(name = "uris", required = false) String[] uris,
+                              @RequestParam(name = "interval", defaultValue = "HOUR") TimeSeriesInterval interval,
+                              HttpServletResponse response) throws IOException {
+        TimeSeriesResponse body = new TimeSeriesResponse(response, objectMapper);
+        try {
+            statsService.streamTimeSeries(start, end, uris, interval, body);
+            body.finish();
+        } finally {
+            body.close();
+        }
     }
 
     /**
@@ -63,4 +173,27 @@ public class StatsController {
                                      @RequestParam(name = "ip") String ip) {
         return statsService.checkIfIpIsUnique(uri, ip);
     }
+
+    /**
+     * Метод выгружает в формате NDJSON все уникальные пары uri и ip для uri, начинающихся с uriPrefix
+     *
+     * @param uriPrefix - начало uri
+     * @param response  - ответ, в который построчно пишутся пары
+     */
+    @GetMapping(value = "/visitors", produces = APPLICATION_NDJSON)
+    public void getVisitors(@RequestParam(name = "uriPrefix") String uriPrefix,
+                            HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_NDJSON);
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n")
+                .writeValues(response.getOutputStream())) {
+            statsService.streamVisitors(uriPrefix, visitor -> {
+                try {
+                    writer.write(visitor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package ru.practicum.ewm.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import ru.practicum.ewm.model.TimeSeriesPointDto;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Тело ответа с временным рядом. Поток ответа открывается только при записи первой точки или по окончании выгрузки,
+ * поэтому ошибки до этого момента, например неверные параметры, возвращаются обычным ответом с ошибкой.
+ * После начала записи статус уже отправлен, и ошибка только обрывает массив
+ */
+class TimeSeriesResponse implements Consumer<TimeSeriesPointDto>, Closeable {
+    private final HttpServletResponse response;
+    private final ObjectMapper objectMapper;
+    private SequenceWriter writer;
+
+    TimeSeriesResponse(HttpServletResponse response, ObjectMapper objectMapper) {
+        this.response = response;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void accept(TimeSeriesPointDto point) {
+        try {
+            open().write(point);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Метод открывает ответ, если не было записано ни одной точки, чтобы пустой ряд вернулся пустым массивом
+     */
+    public void finish() throws IOException {
+        open();
+    }
+
+    /**
+     * Метод закрывает массив, если ответ был открыт. Ответ выгрузки, упавшей до этого, формирует обработчик ошибок
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private SequenceWriter open() throws IOException {
+        if (writer == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            writer = objectMapper.writer().writeValuesAsArray(response.getOutputStream());
+        }
+        return writer;
+    }
+}
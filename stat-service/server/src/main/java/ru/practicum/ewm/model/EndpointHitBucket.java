@@ -0,0 +1,33 @@
+package ru.practicum.ewm.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Количество посещений uri приложением app за один час, начиная с bucket
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stats_hourly")
+public class EndpointHitBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    @EqualsAndHashCode.Exclude
+    private Long id;
+    @Column(name = "app")
+    private String app;
+    @Column(name = "uri")
+    private String uri;
+    @Column(name = "bucket")
+    private LocalDateTime bucket;
+    @Column(name = "hits")
+    @EqualsAndHashCode.Exclude
+    private Long hits;
+}
@@ -0,0 +1,34 @@
+package ru.practicum.ewm.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Скетч HyperLogLog по ip посетителей uri приложения app за один час, начиная с bucket
+ */
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stats_hourly_sketch")
+public class EndpointHitSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    @EqualsAndHashCode.Exclude
+    private Long id;
+    @Column(name = "app")
+    private String app;
+    @Column(name = "uri")
+    private String uri;
+    @Column(name = "bucket")
+    private LocalDateTime bucket;
+    @Column(name = "sketch")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private byte[] sketch;
+}
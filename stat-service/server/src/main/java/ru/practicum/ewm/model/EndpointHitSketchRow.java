@@ -0,0 +1,12 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EndpointHitSketchRow {
+    private String app;
+    private String uri;
+    private byte[] sketch;
+}
@@ -0,0 +1,35 @@
+package ru.practicum.ewm.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Длина интервала, по которому группируются посещения во временном ряду
+ */
+public enum TimeSeriesInterval {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    TimeSeriesInterval(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Метод возвращает поле для date_trunc в PostgreSQL
+     */
+    public String getDateTruncField() {
+        return name().toLowerCase();
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.isEqual(time) ? floor : floor.plus(1, unit);
+    }
+}
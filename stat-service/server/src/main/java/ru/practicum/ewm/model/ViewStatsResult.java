@@ -0,0 +1,20 @@
+package ru.practicum.ewm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Статистика посещений с признаками ее точности
+ */
+@Getter
+@AllArgsConstructor
+public class ViewStatsResult {
+    private final List<ViewStatsDto> stats;
+    // Уникальные посещения оценены по скетчам HyperLogLog
+    private final boolean approximate;
+    // Начало хранимой статистики, если промежуток начинается раньше него, иначе null
+    private final LocalDateTime retainedSince;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.ewm.model.EndpointHitBucket;
+import ru.practicum.ewm.model.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StatsBucketRepository extends JpaRepository<EndpointHitBucket, Long>, StatsBucketRepositoryCustom {
+    @Modifying
+    @Query(value = "INSERT INTO stats_hourly (app, uri, bucket, hits) VALUES (?1, ?2, ?3, ?4) " +
+            "ON CONFLICT (app, uri, bucket) DO UPDATE SET hits = stats_hourly.hits + EXCLUDED.hits", nativeQuery = true)
+    void addHits(String app, String uri, LocalDateTime bucket, long hits);
+
+    @Query("SELECT new ru.practicum.ewm.model.ViewStatsDto(b.app, b.uri, SUM(b.hits)) FROM EndpointHitBucket b " +
+            "WHERE b.bucket >= ?1 AND b.bucket < ?2 " +
+            "GROUP BY b.app, b.uri")
+    List<ViewStatsDto> sumHitsByBuckets(LocalDateTime from, LocalDateTime to);
+
+    @Query("SELECT new ru.practicum.ewm.model.ViewStatsDto(b.app, b.uri, SUM(b.hits)) FROM EndpointHitBucket b " +
+            "WHERE b.bucket >= ?1 AND b.bucket < ?2 AND b.uri IN ?3 " +
+            "GROUP BY b.app, b.uri")
+    List<ViewStatsDto> sumHitsByBucketsAndUriIn(LocalDateTime from, LocalDateTime to, List<String> uris);
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.repository;
+
+import ru.practicum.ewm.model.EndpointHitBucket;
+
+import java.util.Collection;
+
+public interface StatsBucketRepositoryCustom {
+    void addHitsInBatch(Collection<EndpointHitBucket> buckets);
+}
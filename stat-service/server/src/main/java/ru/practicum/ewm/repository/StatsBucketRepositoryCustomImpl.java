@@ -0,0 +1,29 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.model.EndpointHitBucket;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class StatsBucketRepositoryCustomImpl implements StatsBucketRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод увеличивает почасовые счетчики на значения hits переданных объектов пакетными JDBC-запросами
+     */
+    @Override
+    public void addHitsInBatch(Collection<EndpointHitBucket> buckets) {
+        jdbcTemplate.batchUpdate("INSERT INTO stats_hourly (app, uri, bucket, hits) VALUES (?, ?, ?, ?) " +
+                        "ON CONFLICT (app, uri, bucket) DO UPDATE SET hits = stats_hourly.hits + EXCLUDED.hits",
+                buckets, BATCH_SIZE, (ps, bucket) -> {
+                    ps.setString(1, bucket.getApp());
+                    ps.setString(2, bucket.getUri());
+                    ps.setTimestamp(3, Timestamp.valueOf(bucket.getBucket()));
+                    ps.setLong(4, bucket.getHits());
+                });
+    }
+}
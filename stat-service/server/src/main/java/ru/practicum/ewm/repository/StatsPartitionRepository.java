@@ -0,0 +1,62 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий секций таблицы stats. Имена секций формирует вызывающий код, поэтому они подставляются в DDL как есть
+ */
+@Repository
+@RequiredArgsConstructor
+public class StatsPartitionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'stats'::regclass", String.class);
+    }
+
+    /**
+     * Метод создает секцию [from, to) и переносит в нее попавшие в этот промежуток посещения из stats_default
+     */
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE stats INCLUDING DEFAULTS)", name));
+        jdbcTemplate.update(String.format("WITH moved AS (DELETE FROM stats_default " +
+                "WHERE creation_date >= ? AND creation_date < ? RETURNING id, app, uri, ip, creation_date) " +
+                "INSERT INTO %s (id, app, uri, ip, creation_date) SELECT * FROM moved", name),
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute(String.format("ALTER TABLE stats ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')",
+                name, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    /**
+     * Метод пересчитывает почасовые счетчики за промежуток [from, to) по отдельным посещениям
+     */
+    public void recomputeHourlyHits(LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("DELETE FROM stats_hourly WHERE bucket >= ? AND bucket < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.update("INSERT INTO stats_hourly (app, uri, bucket, hits) " +
+                        "SELECT app, uri, date_trunc('hour', creation_date), COUNT(*) FROM stats " +
+                        "WHERE creation_date >= ? AND creation_date < ? " +
+                        "GROUP BY app, uri, date_trunc('hour', creation_date)",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Метод удаляет почасовые счетчики и скетчи часов, начавшихся раньше before
+     */
+    public void deleteRollupsBefore(LocalDateTime before) {
+        jdbcTemplate.update("DELETE FROM stats_hourly WHERE bucket < ?", Timestamp.valueOf(before));
+        jdbcTemplate.update("DELETE FROM stats_hourly_sketch WHERE bucket < ?", Timestamp.valueOf(before));
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute(String.format("DROP TABLE %s", name));
+    }
+}
@@ -1,16 +1,66 @@
 package ru.practicum.ewm.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.ewm.model.EndpointHit;
+import ru.practicum.ewm.model.ViewStatsDto;
+import ru.practicum.ewm.model.VisitorDto;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface StatsRepository extends JpaRepository<EndpointHit, Long>, StatsRepositoryCustom {
     List<EndpointHit> findAllByTimestampIsAfterAndTimestampIsBeforeAndUriIn(LocalDateTime start, LocalDateTime end, List<String> uris);
 
     List<EndpointHit> findAllByTimestampIsAfterAndTimestampIsBefore(LocalDateTime start, LocalDateTime end);
 
+    List<EndpointHit> findAllByTimestampGreaterThanEqualAndTimestampIsBeforeAndUriIn(LocalDateTime start, LocalDateTime end,
+                                                                                     List<String> uris);
+
+    List<EndpointHit> findAllByTimestampGreaterThanEqualAndTimestampIsBefore(LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Метод считает посещения за промежуток (start, end) по uri, не загружая отдельные посещения
+     */
+    @Query("SELECT new ru.practicum.ewm.model.ViewStatsDto(h.app, h.uri, COUNT(h.id)) FROM EndpointHit h " +
+            "WHERE h.timestamp > ?1 AND h.timestamp < ?2 AND (h.uri IN ?3 OR ?3 IS NULL) " +
+            "GROUP BY h.app, h.uri ORDER BY COUNT(h.id) DESC")
+    List<ViewStatsDto> countHitsBetween(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    /**
+     * Метод считает посещения за промежуток [start, end) по uri, не загружая отдельные посещения
+     */
+    @Query("SELECT new ru.practicum.ewm.model.ViewStatsDto(h.app, h.uri, COUNT(h.id)) FROM EndpointHit h " +
+            "WHERE h.timestamp >= ?1 AND h.timestamp < ?2 AND (h.uri IN ?3 OR ?3 IS NULL) " +
+            "GROUP BY h.app, h.uri ORDER BY COUNT(h.id) DESC")
+    List<ViewStatsDto> countHitsFrom(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    /**
+     * Метод считает посещения с уникальных ip за промежуток (start, end) по uri
+     */
+    @Query("SELECT new ru.practicum.ewm.model.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) FROM EndpointHit h " +
+            "WHERE h.timestamp > ?1 AND h.timestamp < ?2 AND (h.uri IN ?3 OR ?3 IS NULL) " +
+            "GROUP BY h.app, h.uri ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<ViewStatsDto> countUniqueHitsBetween(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM stats)", nativeQuery = true)
+    boolean existsAny();
+
     Optional<EndpointHit> findFirst1ByUriAndIp(String uri, String ip);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.ewm.model.EndpointHit(h.id, h.app, h.uri, h.ip, h.timestamp) FROM EndpointHit h " +
+            "ORDER BY h.app, h.uri, h.timestamp")
+    Stream<EndpointHit> streamAllOrderByAppAndUri();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT DISTINCT new ru.practicum.ewm.model.VisitorDto(h.uri, h.ip) FROM EndpointHit h " +
+            "WHERE h.uri LIKE CONCAT(?1, '%')")
+    Stream<VisitorDto> streamVisitorsByUriPrefix(String uriPrefix);
 }
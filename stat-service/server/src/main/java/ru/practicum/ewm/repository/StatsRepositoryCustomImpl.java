@@ -0,0 +1,28 @@
+package ru.practicum.ewm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class StatsRepositoryCustomImpl implements StatsRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Метод сохраняет посещения пакетными JDBC-вставками, идентификаторы посещений не возвращаются
+     */
+    @Override
+    public void insertAll(List<EndpointHit> hits) {
+        jdbcTemplate.batchUpdate("INSERT INTO stats (app, uri, ip, creation_date) VALUES (?, ?, ?, ?)",
+                hits, BATCH_SIZE, (ps, hit) -> {
+                    ps.setString(1, hit.getApp());
+                    ps.setString(2, hit.getUri());
+                    ps.setString(3, hit.getIp());
+                    ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+                });
+    }
+}
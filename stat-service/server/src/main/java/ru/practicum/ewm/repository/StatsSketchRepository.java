@@ -0,0 +1,37 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.data.jpa.repository.*;
+import ru.practicum.ewm.model.EndpointHitSketch;
+import ru.practicum.ewm.model.EndpointHitSketchRow;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface StatsSketchRepository extends JpaRepository<EndpointHitSketch, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO stats_hourly_sketch (app, uri, bucket, sketch) VALUES (?1, ?2, ?3, ?4) " +
+            "ON CONFLICT (app, uri, bucket) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(String app, String uri, LocalDateTime bucket, byte[] sketch);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM stats_hourly_sketch)", nativeQuery = true)
+    boolean existsAny();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<EndpointHitSketch> findByAppAndUriAndBucket(String app, String uri, LocalDateTime bucket);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "256"))
+    @Query("SELECT new ru.practicum.ewm.model.EndpointHitSketchRow(s.app, s.uri, s.sketch) FROM EndpointHitSketch s " +
+            "WHERE s.bucket >= ?1 AND s.bucket < ?2")
+    Stream<EndpointHitSketchRow> streamSketches(LocalDateTime from, LocalDateTime to);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "256"))
+    @Query("SELECT new ru.practicum.ewm.model.EndpointHitSketchRow(s.app, s.uri, s.sketch) FROM EndpointHitSketch s " +
+            "WHERE s.bucket >= ?1 AND s.bucket < ?2 AND s.uri IN ?3")
+    Stream<EndpointHitSketchRow> streamSketchesByUriIn(LocalDateTime from, LocalDateTime to, List<String> uris);
+}
@@ -0,0 +1,67 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.model.TimeSeriesInterval;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий временных рядов посещений. Строки читаются курсором порциями по FETCH_SIZE,
+ * поэтому вызывать методы нужно внутри транзакции
+ */
+@Repository
+public class StatsTimeSeriesRepository {
+    private static final int FETCH_SIZE = 1000;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public StatsTimeSeriesRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate.getJdbcTemplate().setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Метод суммирует почасовые счетчики stats_hourly за промежуток [from, to) по интервалам не меньше часа
+     */
+    public void streamRolledUpHits(TimeSeriesInterval interval, LocalDateTime from, LocalDateTime to,
+                                   List<String> uris, TimeSeriesRowHandler handler) {
+        String sql = "SELECT app, uri, date_trunc(:field, bucket) AS point, SUM(hits) AS hits FROM stats_hourly " +
+                "WHERE bucket >= :from AND bucket < :to" + (uris == null ? "" : " AND uri IN (:uris)") + " " +
+                "GROUP BY 1, 2, 3 ORDER BY 3, 1, 2";
+        query(sql, interval, from, to, uris, handler);
+    }
+
+    /**
+     * Метод считает отдельные посещения за промежуток [from, to) по интервалам
+     */
+    public void streamRawHits(TimeSeriesInterval interval, LocalDateTime from, LocalDateTime to,
+                              List<String> uris, TimeSeriesRowHandler handler) {
+        String sql = "SELECT app, uri, date_trunc(:field, creation_date) AS point, COUNT(*) AS hits FROM stats " +
+                "WHERE creation_date >= :from AND creation_date < :to" +
+                (uris == null ? "" : " AND uri IN (:uris)") + " " +
+                "GROUP BY 1, 2, 3 ORDER BY 3, 1, 2";
+        query(sql, interval, from, to, uris, handler);
+    }
+
+    private void query(String sql, TimeSeriesInterval interval, LocalDateTime from, LocalDateTime to,
+                       List<String> uris, TimeSeriesRowHandler handler) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("field", interval.getDateTruncField())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to))
+                .addValue("uris", uris);
+        jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> handler.handle(rs.getString("app"),
+                rs.getString("uri"), rs.getTimestamp("point").toLocalDateTime(), rs.getLong("hits")));
+    }
+
+    @FunctionalInterface
+    public interface TimeSeriesRowHandler {
+        void handle(String app, String uri, LocalDateTime bucket, long hits) throws SQLException;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.model.VisitorDto;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Репозиторий пар uri и ip, перенесенных из удаленных секций stats в таблицу stats_visitors.
+ * Строки выгрузки читаются курсором порциями по FETCH_SIZE
+ */
+@Repository
+public class StatsVisitorRepository {
+    private static final int FETCH_SIZE = 1000;
+    private final JdbcTemplate jdbcTemplate;
+
+    public StatsVisitorRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Метод переносит пары uri и ip посещений за промежуток [from, to) в stats_visitors
+     */
+    public void archiveVisitors(LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("INSERT INTO stats_visitors (uri, ip, last_seen) " +
+                        "SELECT uri, ip, MAX(creation_date) FROM stats " +
+                        "WHERE creation_date >= ? AND creation_date < ? GROUP BY uri, ip " +
+                        "ON CONFLICT (uri, ip) DO UPDATE " +
+                        "SET last_seen = GREATEST(stats_visitors.last_seen, EXCLUDED.last_seen)",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public boolean existsByUriAndIp(String uri, String ip) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM stats_visitors " +
+                "WHERE uri = ? AND ip = ?)", Boolean.class, uri, ip);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Метод передает потребителю пары для uri, начинающихся с uriPrefix, которых нет среди хранимых посещений.
+     * Строки читаются курсором, поэтому вызывать метод нужно внутри транзакции
+     */
+    public void streamVisitorsByUriPrefix(String uriPrefix, Consumer<VisitorDto> consumer) {
+        jdbcTemplate.query("SELECT v.uri, v.ip FROM stats_visitors v WHERE v.uri LIKE CONCAT(?, '%') " +
+                        "AND NOT EXISTS (SELECT 1 FROM stats s WHERE s.uri = v.uri AND s.ip = v.ip)",
+                (RowCallbackHandler) rs -> consumer.accept(new VisitorDto(rs.getString("uri"), rs.getString("ip"))),
+                uriPrefix);
+    }
+
+    /**
+     * Метод удаляет пары, последнее посещение которых было раньше before
+     *
+     * @return Метод возвращает число удаленных пар
+     */
+    public int deleteSeenBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM stats_visitors WHERE last_seen < ?", Timestamp.valueOf(before));
+    }
+}
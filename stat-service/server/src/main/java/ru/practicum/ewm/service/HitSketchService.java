@@ -0,0 +1,15 @@
+package ru.practicum.ewm.service;
+
+import ru.practicum.ewm.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface HitSketchService {
+    void record(EndpointHit hit);
+
+    Map<List<String>, HyperLogLog> mergeSketches(LocalDateTime from, LocalDateTime to, List<String> uris);
+
+    void flush();
+}
@@ -0,0 +1,209 @@
+package ru.practicum.ewm.service;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.model.EndpointHit;
+import ru.practicum.ewm.model.EndpointHitSketch;
+import ru.practicum.ewm.model.EndpointHitSketchRow;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsSketchRepository;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Сервис ведет почасовые скетчи HyperLogLog по ip посетителей.
+ * Новые посещения копятся в памяти и периодически сливаются со скетчами в таблице stats_hourly_sketch
+ */
+
+@Slf4j
+@Service
+public class HitSketchServiceImpl implements HitSketchService {
+    private final StatsSketchRepository statsSketchRepository;
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    // Блокировку на чтение берут потоки, пишущие в pending, на запись - flush при подмене pending
+    private final ReadWriteLock pendingLock = new ReentrantReadWriteLock();
+    private volatile Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    // Скетчи, которые сохраняются в данный момент
+    private volatile Map<SketchKey, HyperLogLog> flushing = Map.of();
+
+    public HitSketchServiceImpl(StatsSketchRepository statsSketchRepository, StatsRepository statsRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.statsSketchRepository = statsSketchRepository;
+        this.statsRepository = statsRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Метод добавляет ip посещения в скетч соответствующего часа
+     *
+     * @param hit - сохраненное посещение
+     */
+    @Override
+    public void record(EndpointHit hit) {
+        SketchKey key = new SketchKey(hit.getApp(), hit.getUri(), hit.getTimestamp().truncatedTo(ChronoUnit.HOURS));
+        pendingLock.readLock().lock();
+        try {
+            pending.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+        } finally {
+            pendingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод объединяет почасовые скетчи за промежуток [from, to) по каждой паре app и uri.
+     * В памяти одновременно находится не больше одного скетча на пару app и uri.
+     * Слияние скетчей идемпотентно, поэтому скетч, попавший и в память, и в базу данных, не завышает оценку
+     *
+     * @param from - начало первого часа
+     * @param to   - конец последнего часа
+     * @param uris - массив uri, null - все uri
+     * @return Метод возвращает объединенные скетчи, ключ - список из app и uri
+     */
+    @Override
+    public Map<List<String>, HyperLogLog> mergeSketches(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        Map<List<String>, HyperLogLog> merged = new HashMap<>();
+        mergePending(merged, pending, from, to, uris);
+        mergePending(merged, flushing, from, to, uris);
+        readTransaction.executeWithoutResult(status -> {
+            try (Stream<EndpointHitSketchRow> rows = uris == null
+                    ? statsSketchRepository.streamSketches(from, to)
+                    : statsSketchRepository.streamSketchesByUriIn(from, to, uris)) {
+                rows.forEach(row -> merged.computeIfAbsent(List.of(row.getApp(), row.getUri()), k -> new HyperLogLog())
+                        .merge(HyperLogLog.fromBytes(row.getSketch())));
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Метод сливает накопленные в памяти скетчи со скетчами в базе данных
+     */
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${stats.sketch.flush-interval-ms:5000}")
+    public void flush() {
+        Map<SketchKey, HyperLogLog> toFlush;
+        pendingLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            toFlush = pending;
+            flushing = toFlush;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            pendingLock.writeLock().unlock();
+        }
+        // Сортировка ключей задает общий порядок блокировки строк для нескольких экземпляров сервиса
+        List<SketchKey> keys = new ArrayList<>(toFlush.keySet());
+        keys.sort(Comparator.comparing(SketchKey::getApp).thenComparing(SketchKey::getUri)
+                .thenComparing(SketchKey::getBucket));
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                for (SketchKey key : keys) {
+                    writeSketch(key, toFlush.get(key));
+                }
+            });
+            log.info("Сохранено {} скетчей уникальных посещений", keys.size());
+        } catch (RuntimeException e) {
+            log.error("Не удалось сохранить скетчи уникальных посещений, повтор при следующем сохранении", e);
+            for (Map.Entry<SketchKey, HyperLogLog> entry : toFlush.entrySet()) {
+                pendingLock.readLock().lock();
+                try {
+                    pending.computeIfAbsent(entry.getKey(), k -> new HyperLogLog()).merge(entry.getValue());
+                } finally {
+                    pendingLock.readLock().unlock();
+                }
+            }
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    /**
+     * Метод строит скетчи по уже сохраненным посещениям, если таблица скетчей еще пуста.
+     * Наличие строк проверяется запросами EXISTS, которые читают не больше одной строки
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (statsSketchRepository.existsAny() || !statsRepository.existsAny()) {
+            return;
+        }
+        Integer created = writeTransaction.execute(status -> {
+            int count = 0;
+            SketchKey currentKey = null;
+            HyperLogLog currentSketch = null;
+            try (Stream<EndpointHit> hits = statsRepository.streamAllOrderByAppAndUri()) {
+                Iterator<EndpointHit> iterator = hits.iterator();
+                while (iterator.hasNext()) {
+                    EndpointHit hit = iterator.next();
+                    SketchKey key = new SketchKey(hit.getApp(), hit.getUri(),
+                            hit.getTimestamp().truncatedTo(ChronoUnit.HOURS));
+                    if (!key.equals(currentKey)) {
+                        if (currentKey != null) {
+                            writeSketch(currentKey, currentSketch);
+                            count++;
+                        }
+                        currentKey = key;
+                        currentSketch = new HyperLogLog();
+                    }
+                    currentSketch.add(hit.getIp());
+                }
+            }
+            if (currentKey != null) {
+                writeSketch(currentKey, currentSketch);
+                count++;
+            }
+            return count;
+        });
+        log.info("По сохраненным посещениям построено {} скетчей уникальных посещений", created);
+    }
+
+    private void mergePending(Map<List<String>, HyperLogLog> merged, Map<SketchKey, HyperLogLog> sketches,
+                              LocalDateTime from, LocalDateTime to, List<String> uris) {
+        for (Map.Entry<SketchKey, HyperLogLog> entry : sketches.entrySet()) {
+            SketchKey key = entry.getKey();
+            if (!key.getBucket().isBefore(from) && key.getBucket().isBefore(to)
+                    && (uris == null || uris.contains(key.getUri()))) {
+                merged.computeIfAbsent(List.of(key.getApp(), key.getUri()), k -> new HyperLogLog())
+                        .merge(entry.getValue());
+            }
+        }
+    }
+
+    private void writeSketch(SketchKey key, HyperLogLog sketch) {
+        if (statsSketchRepository.insertIfAbsent(key.getApp(), key.getUri(), key.getBucket(), sketch.toBytes()) == 0) {
+            EndpointHitSketch stored = statsSketchRepository
+                    .findByAppAndUriAndBucket(key.getApp(), key.getUri(), key.getBucket())
+                    .orElseThrow();
+            HyperLogLog storedSketch = HyperLogLog.fromBytes(stored.getSketch());
+            storedSketch.merge(sketch);
+            stored.setSketch(storedSketch.toBytes());
+            statsSketchRepository.save(stored);
+        }
+    }
+
+    @Value
+    private static class SketchKey {
+        String app;
+        String uri;
+        LocalDateTime bucket;
+    }
+}
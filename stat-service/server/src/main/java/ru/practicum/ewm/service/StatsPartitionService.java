@@ -0,0 +1,11 @@
+package ru.practicum.ewm.service;
+
+import java.time.LocalDateTime;
+
+public interface StatsPartitionService {
+    void maintainPartitions();
+
+    LocalDateTime getRawHitsRetainedSince();
+
+    LocalDateTime getRollupsRetainedSince();
+}
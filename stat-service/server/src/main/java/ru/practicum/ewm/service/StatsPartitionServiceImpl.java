@@ -0,0 +1,159 @@
+package ru.practicum.ewm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.repository.StatsPartitionRepository;
+import ru.practicum.ewm.repository.StatsVisitorRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Сервис ведет помесячные секции таблицы stats.
+ * Секции создаются заранее на несколько месяцев вперед. Секции старше срока хранения удаляются,
+ * перед удалением почасовые счетчики stats_hourly за их месяц пересчитываются по отдельным посещениям,
+ * а пары uri и ip переносятся в stats_visitors. После этого статистика за месяц хранится только в stats_hourly,
+ * stats_hourly_sketch и stats_visitors, которые в свою очередь удаляются после своего срока хранения,
+ * поэтому объем хранимых данных не растет со временем
+ */
+@Slf4j
+@Service
+public class StatsPartitionServiceImpl implements StatsPartitionService {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'stats_y'uuuu'm'MM");
+    private final StatsPartitionRepository statsPartitionRepository;
+    private final StatsVisitorRepository statsVisitorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int rawRetentionMonths;
+    private final int rollupRetentionMonths;
+
+    public StatsPartitionServiceImpl(StatsPartitionRepository statsPartitionRepository,
+                                     StatsVisitorRepository statsVisitorRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${stats.partitions.months-ahead:2}") int monthsAhead,
+                                     @Value("${stats.partitions.raw-retention-months:12}") int rawRetentionMonths,
+                                     @Value("${stats.partitions.rollup-retention-months:36}")
+                                     int rollupRetentionMonths) {
+        if (rawRetentionMonths > 0 && rollupRetentionMonths > 0 && rollupRetentionMonths < rawRetentionMonths) {
+            throw new IllegalArgumentException("Срок хранения счетчиков не может быть меньше срока хранения посещений");
+        }
+        this.statsPartitionRepository = statsPartitionRepository;
+        this.statsVisitorRepository = statsVisitorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.rawRetentionMonths = rawRetentionMonths;
+        this.rollupRetentionMonths = rollupRetentionMonths;
+    }
+
+    /**
+     * Метод создает недостающие секции на ближайшие месяцы, удаляет секции старше срока хранения
+     * и удаляет счетчики, скетчи и пары uri и ip старше своего срока хранения.
+     * Каждая секция создается и удаляется в отдельной транзакции
+     */
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        Set<String> partitions = new HashSet<>(statsPartitionRepository.findPartitionNames());
+        YearMonth currentMonth = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            String name = month.format(PARTITION_NAME);
+            if (!partitions.contains(name)) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> statsPartitionRepository.createPartition(name,
+                            start(month), start(month.plusMonths(1))));
+                    log.info("Создана секция {}", name);
+                } catch (RuntimeException e) {
+                    log.error("Не удалось создать секцию {}: {}", name, e.getMessage());
+                }
+            }
+        }
+        if (rawRetentionMonths <= 0) {
+            return;
+        }
+        dropPartitions(partitions, currentMonth);
+        if (rollupRetentionMonths > 0) {
+            deleteRollups(start(currentMonth.minusMonths(rollupRetentionMonths)));
+        }
+    }
+
+    /**
+     * Метод возвращает начало промежутка, за который хранятся отдельные посещения
+     *
+     * @return Метод возвращает начало первого хранимого месяца или null, если посещения хранятся бессрочно
+     */
+    @Override
+    public LocalDateTime getRawHitsRetainedSince() {
+        if (rawRetentionMonths <= 0) {
+            return null;
+        }
+        return start(YearMonth.now().minusMonths(rawRetentionMonths));
+    }
+
+    /**
+     * Метод возвращает начало промежутка, за который хранятся почасовые счетчики и скетчи
+     *
+     * @return Метод возвращает начало первого хранимого месяца или null, если счетчики хранятся бессрочно
+     */
+    @Override
+    public LocalDateTime getRollupsRetainedSince() {
+        if (rawRetentionMonths <= 0 || rollupRetentionMonths <= 0) {
+            return null;
+        }
+        return start(YearMonth.now().minusMonths(rollupRetentionMonths));
+    }
+
+    private void dropPartitions(Set<String> partitions, YearMonth currentMonth) {
+        YearMonth firstRetainedMonth = currentMonth.minusMonths(rawRetentionMonths);
+        for (String name : partitions) {
+            YearMonth month = parseMonth(name);
+            if (month != null && month.isBefore(firstRetainedMonth)) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        statsPartitionRepository.recomputeHourlyHits(start(month), start(month.plusMonths(1)));
+                        statsVisitorRepository.archiveVisitors(start(month), start(month.plusMonths(1)));
+                        statsPartitionRepository.dropPartition(name);
+                    });
+                    log.info("Посещения секции {} свернуты в почасовые счетчики, секция удалена", name);
+                } catch (RuntimeException e) {
+                    log.error("Не удалось удалить секцию {}: {}", name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void deleteRollups(LocalDateTime before) {
+        try {
+            Integer visitors = transactionTemplate.execute(status -> {
+                statsPartitionRepository.deleteRollupsBefore(before);
+                return statsVisitorRepository.deleteSeenBefore(before);
+            });
+            log.info("Удалены счетчики и скетчи до {} и {} пар uri и ip", before, visitors);
+        } catch (RuntimeException e) {
+            log.error("Не удалось удалить счетчики до {}: {}", before, e.getMessage());
+        }
+    }
+
+    private static LocalDateTime start(YearMonth month) {
+        return month.atDay(1).atStartOfDay();
+    }
+
+    private static YearMonth parseMonth(String partitionName) {
+        try {
+            return YearMonth.parse(partitionName, PARTITION_NAME);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package ru.practicum.ewm.service;
 
-import ru.practicum.ewm.model.EndpointHitDto;
-import ru.practicum.ewm.model.EndpointHitResponse;
-import ru.practicum.ewm.model.ViewStatsDto;
+import ru.practicum.ewm.model.*;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     EndpointHitResponse addEndpointHit(EndpointHitDto endpointHit);
 
-    List<ViewStatsDto> getStats(String start, String end, String[] uris, boolean unique);
+    EndpointHitResponse addEndpointHits(List<EndpointHitDto> endpointHits);
+
+    ViewStatsResult getStats(String start, String end, String[] uris, boolean unique, boolean approximate);
 
     Boolean checkIfIpIsUnique(String uri, String ip);
+
+    void streamVisitors(String uriPrefix, Consumer<VisitorDto> consumer);
+
+    void streamTimeSeries(String start, String end, String[] uris, TimeSeriesInterval interval,
+                          Consumer<TimeSeriesPointDto> consumer);
 }
@@ -1,25 +1,35 @@
 package ru.practicum.ewm.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.model.*;
+import ru.practicum.ewm.repository.StatsBucketRepository;
 import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.repository.StatsTimeSeriesRepository;
+import ru.practicum.ewm.repository.StatsVisitorRepository;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "stats.service", histogram = true)
 public class StatsServiceImpl implements StatsService {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final StatsRepository statsRepository;
+    private final StatsBucketRepository statsBucketRepository;
+    private final HitSketchService hitSketchService;
+    private final StatsPartitionService statsPartitionService;
+    private final StatsTimeSeriesRepository statsTimeSeriesRepository;
+    private final StatsVisitorRepository statsVisitorRepository;
 
     /**
      * Метод сохраняет данные о посещении эндпоинта
@@ -31,65 +41,230 @@ public class StatsServiceImpl implements StatsService {
     @Transactional
     public EndpointHitResponse addEndpointHit(EndpointHitDto endpointHitDto) {
         EndpointHit savedHit = statsRepository.save(EndpointHitMapper.toEndpointHit(endpointHitDto));
+        statsBucketRepository.addHits(savedHit.getApp(), savedHit.getUri(),
+                savedHit.getTimestamp().truncatedTo(ChronoUnit.HOURS), 1L);
+        hitSketchService.record(savedHit);
         log.info("EndpointHit {} создан", savedHit);
         return new EndpointHitResponse("Информация сохранена");
     }
 
     /**
-     * Метод возвращает статистику посещений по определенным uri
+     * Метод сохраняет данные о нескольких посещениях в одной транзакции пакетными вставками
      *
-     * @param start  - начало интересующего временного промежутка
-     * @param end    - конец интересующего временного промежутка
-     * @param uris   - массив uri
-     * @param unique - учитывать ли посещения с одного ip как разные
-     * @return Метод возвращает статистику посещений
+     * @param endpointHitDtos список объектов EndpointHitDto
+     * @return В случае успешного сохранения информации метод сообщает об этом
+     */
+    @Override
+    @Transactional
+    public EndpointHitResponse addEndpointHits(List<EndpointHitDto> endpointHitDtos) {
+        List<EndpointHit> hits = new ArrayList<>(endpointHitDtos.size());
+        Map<EndpointHitBucket, EndpointHitBucket> buckets = new HashMap<>();
+        for (EndpointHitDto endpointHitDto : endpointHitDtos) {
+            EndpointHit hit = EndpointHitMapper.toEndpointHit(endpointHitDto);
+            hits.add(hit);
+            EndpointHitBucket bucket = EndpointHitBucket.builder()
+                    .app(hit.getApp())
+                    .uri(hit.getUri())
+                    .bucket(hit.getTimestamp().truncatedTo(ChronoUnit.HOURS))
+                    .hits(1L)
+                    .build();
+            EndpointHitBucket foundBucket = buckets.putIfAbsent(bucket, bucket);
+            if (foundBucket != null) {
+                foundBucket.setHits(foundBucket.getHits() + 1L);
+            }
+        }
+        statsRepository.insertAll(hits);
+        statsBucketRepository.addHitsInBatch(buckets.values());
+        hits.forEach(hitSketchService::record);
+        log.info("Сохранено {} посещений", hits.size());
+        return new EndpointHitResponse(String.format("Информация о %d посещениях сохранена", hits.size()));
+    }
+
+    /**
+     * Метод возвращает статистику посещений по определенным uri.
+     * Посещения за полные часы внутри промежутка суммируются по почасовым счетчикам stats_hourly,
+     * посещения за неполные часы на краях промежутка и уникальные посещения считаются в базе данных GROUP BY запросами.
+     * Приблизительное число уникальных посещений считается по почасовым скетчам HyperLogLog
+     * с относительной ошибкой около 1.6% (см. {@link HyperLogLog}). Так же считаются уникальные посещения
+     * за промежутки, начинающиеся раньше срока хранения отдельных посещений, такая статистика помечается
+     * как приблизительная. Статистика за время до срока хранения счетчиков не учитывается,
+     * в этом случае результат содержит начало хранимой статистики
+     *
+     * @param start       - начало интересующего временного промежутка
+     * @param end         - конец интересующего временного промежутка
+     * @param uris        - массив uri
+     * @param unique      - учитывать ли посещения с одного ip как разные
+     * @param approximate - считать ли уникальные посещения приблизительно
+     * @return Метод возвращает статистику посещений и признаки ее точности
      */
     @Override
-    public List<ViewStatsDto> getStats(String start, String end, String[] uris, boolean unique) {
-        if (LocalDateTime.parse(start, FORMATTER).isAfter(LocalDateTime.parse(end, FORMATTER))) {
+    @Transactional(readOnly = true)
+    public ViewStatsResult getStats(String start, String end, String[] uris, boolean unique, boolean approximate) {
+        LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
+        LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
+        if (startTime.isAfter(endTime)) {
             throw new IllegalArgumentException("Дата начала не может быть позже даты конца");
         }
-        List<ViewStatsDto> stats = new ArrayList<>();
-        List<EndpointHit> foundHits;
-        if (uris == null) {
-            foundHits = statsRepository.findAllByTimestampIsAfterAndTimestampIsBefore(
-                    LocalDateTime.parse(start, FORMATTER), LocalDateTime.parse(end, FORMATTER));
+        List<String> uriList = uris == null ? null : List.of(uris);
+        Map<ViewStatsDto, ViewStatsDto> stats = new HashMap<>();
+        // Первый час, целиком попадающий в промежуток (start не включается), и конец последнего такого часа
+        LocalDateTime firstFullBucket = startTime.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        LocalDateTime lastFullBucketEnd = endTime.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime rawHitsRetainedSince = statsPartitionService.getRawHitsRetainedSince();
+        if (unique && !approximate && rawHitsRetainedSince != null && startTime.isBefore(rawHitsRetainedSince)) {
+            // Отдельных посещений за начало промежутка уже нет, уникальные посещения можно оценить только по скетчам
+            log.info("Посещения до {} удалены, уникальные посещения считаются приблизительно", rawHitsRetainedSince);
+            approximate = true;
+        }
+        LocalDateTime rollupsRetainedSince = statsPartitionService.getRollupsRetainedSince();
+        if (rollupsRetainedSince != null && !startTime.isBefore(rollupsRetainedSince)) {
+            rollupsRetainedSince = null;
+        }
+        if (unique && approximate) {
+            countApproximateUniqueHits(stats, startTime, endTime, firstFullBucket, lastFullBucketEnd, uriList);
+        } else if (unique) {
+            addHits(stats, statsRepository.countUniqueHitsBetween(startTime, endTime, uriList));
         } else {
-            foundHits = statsRepository.findAllByTimestampIsAfterAndTimestampIsBeforeAndUriIn(LocalDateTime
-                    .parse(start, FORMATTER), LocalDateTime.parse(end, FORMATTER), List.of(uris));
-        }
-        if (unique) {
-            foundHits = foundHits.stream()
-                    .distinct()
-                    .collect(Collectors.toList());
-        }
-        for (EndpointHit hit : foundHits) {
-            ViewStatsDto stat = new ViewStatsDto(hit.getApp(), hit.getUri(), 1);
-            if (stats.contains(stat)) {
-                for (ViewStatsDto foundStat : stats) {
-                    if (foundStat.equals(stat)) {
-                        foundStat.addHit();
-                    }
-                }
+            if (firstFullBucket.isBefore(lastFullBucketEnd)) {
+                addHits(stats, uriList == null
+                        ? statsBucketRepository.sumHitsByBuckets(firstFullBucket, lastFullBucketEnd)
+                        : statsBucketRepository.sumHitsByBucketsAndUriIn(firstFullBucket, lastFullBucketEnd, uriList));
+                addHits(stats, statsRepository.countHitsBetween(startTime, firstFullBucket, uriList));
+                addHits(stats, statsRepository.countHitsFrom(lastFullBucketEnd, endTime, uriList));
             } else {
-                stats.add(stat);
+                addHits(stats, statsRepository.countHitsBetween(startTime, endTime, uriList));
             }
         }
-        stats.sort((a, b) -> b.getHits().compareTo(a.getHits()));
-        log.info("Найдено {} объектов по запросу start={}, end={}, uris={}, unique={}", stats.size(), start, end, uris, unique);
-        return stats;
+        List<ViewStatsDto> result = new ArrayList<>(stats.values());
+        result.sort((a, b) -> b.getHits().compareTo(a.getHits()));
+        log.info("Найдено {} объектов по запросу start={}, end={}, uris={}, unique={}, approximate={}", result.size(),
+                start, end, uris, unique, approximate);
+        return new ViewStatsResult(result, unique && approximate, rollupsRetainedSince);
     }
 
     /**
-     * Метод проверяет уникальность EndpointHit
+     * Метод проверяет уникальность EndpointHit.
+     * Посещения из удаленных секций ищутся среди перенесенных пар uri и ip, которые хранятся столько же,
+     * сколько почасовые счетчики
      *
      * @param uri - uri
      * @param ip - ip
      * @return Метод возвращает true, если запрос уникальный
      */
     @Override
+    @Transactional(readOnly = true)
     public Boolean checkIfIpIsUnique(String uri, String ip) {
         Optional<EndpointHit> foundHit = statsRepository.findFirst1ByUriAndIp(uri, ip);
-        return foundHit.isEmpty();
+        return foundHit.isEmpty() && !statsVisitorRepository.existsByUriAndIp(uri, ip);
+    }
+
+    /**
+     * Метод передает потребителю все уникальные пары uri и ip для uri, начинающихся с uriPrefix,
+     * включая пары из удаленных секций, не загружая их в память целиком
+     *
+     * @param uriPrefix - начало uri
+     * @param consumer  - потребитель пар uri и ip
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamVisitors(String uriPrefix, Consumer<VisitorDto> consumer) {
+        try (Stream<VisitorDto> visitors = statsRepository.streamVisitorsByUriPrefix(uriPrefix)) {
+            visitors.forEach(consumer);
+        }
+        statsVisitorRepository.streamVisitorsByUriPrefix(uriPrefix, consumer);
+        log.info("Выгружены посетители uri с началом {}", uriPrefix);
+    }
+
+    /**
+     * Метод передает потребителю количество посещений uri по интервалам, упорядоченное по началу интервала.
+     * Промежуток расширяется до целых интервалов. Часовые и дневные интервалы суммируются по почасовым
+     * счетчикам stats_hourly, минутные считаются одним сгруппированным запросом по отдельным посещениям,
+     * поэтому промежуток минутных интервалов не может начинаться раньше удаленных посещений
+     *
+     * @param start    - начало интересующего временного промежутка
+     * @param end      - конец интересующего временного промежутка
+     * @param uris     - массив uri
+     * @param interval - длина интервала
+     * @param consumer - потребитель количества посещений за интервал
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamTimeSeries(String start, String end, String[] uris, TimeSeriesInterval interval,
+                                 Consumer<TimeSeriesPointDto> consumer) {
+        LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
+        LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
+        if (startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("Дата начала не может быть позже даты конца");
+        }
+        List<String> uriList = uris == null ? null : List.of(uris);
+        LocalDateTime from = interval.floor(startTime);
+        LocalDateTime to = interval.ceil(endTime);
+        if (interval == TimeSeriesInterval.MINUTE) {
+            LocalDateTime rawHitsRetainedSince = statsPartitionService.getRawHitsRetainedSince();
+            if (rawHitsRetainedSince != null && from.isBefore(rawHitsRetainedSince)) {
+                throw new IllegalArgumentException("Посещения до " + rawHitsRetainedSince.format(FORMATTER) +
+                        " удалены, минутные интервалы доступны только начиная с этой даты");
+            }
+        }
+        StatsTimeSeriesRepository.TimeSeriesRowHandler handler = (app, uri, bucket, hits) ->
+                consumer.accept(new TimeSeriesPointDto(app, uri, bucket.format(FORMATTER), hits));
+        if (interval == TimeSeriesInterval.MINUTE) {
+            statsTimeSeriesRepository.streamRawHits(interval, from, to, uriList, handler);
+        } else {
+            statsTimeSeriesRepository.streamRolledUpHits(interval, from, to, uriList, handler);
+        }
+        log.info("Выгружен временной ряд по запросу start={}, end={}, uris={}, interval={}", start, end, uris,
+                interval);
+    }
+
+    private List<EndpointHit> findHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        if (uris == null) {
+            return statsRepository.findAllByTimestampIsAfterAndTimestampIsBefore(start, end);
+        }
+        return statsRepository.findAllByTimestampIsAfterAndTimestampIsBeforeAndUriIn(start, end, uris);
+    }
+
+    private List<EndpointHit> findTailHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        if (uris == null) {
+            return statsRepository.findAllByTimestampGreaterThanEqualAndTimestampIsBefore(start, end);
+        }
+        return statsRepository.findAllByTimestampGreaterThanEqualAndTimestampIsBeforeAndUriIn(start, end, uris);
+    }
+
+    private void countApproximateUniqueHits(Map<ViewStatsDto, ViewStatsDto> stats, LocalDateTime start,
+                                            LocalDateTime end, LocalDateTime firstFullBucket,
+                                            LocalDateTime lastFullBucketEnd, List<String> uris) {
+        Map<List<String>, HyperLogLog> sketches;
+        if (firstFullBucket.isBefore(lastFullBucketEnd)) {
+            sketches = hitSketchService.mergeSketches(firstFullBucket, lastFullBucketEnd, uris);
+            addToSketches(sketches, findHits(start, firstFullBucket, uris));
+            addToSketches(sketches, findTailHits(lastFullBucketEnd, end, uris));
+        } else {
+            sketches = new HashMap<>();
+            addToSketches(sketches, findHits(start, end, uris));
+        }
+        for (Map.Entry<List<String>, HyperLogLog> entry : sketches.entrySet()) {
+            addHits(stats, entry.getKey().get(0), entry.getKey().get(1), entry.getValue().estimate());
+        }
+    }
+
+    private void addToSketches(Map<List<String>, HyperLogLog> sketches, List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            sketches.computeIfAbsent(List.of(hit.getApp(), hit.getUri()), k -> new HyperLogLog()).add(hit.getIp());
+        }
+    }
+
+    private void addHits(Map<ViewStatsDto, ViewStatsDto> stats, List<ViewStatsDto> counts) {
+        for (ViewStatsDto count : counts) {
+            addHits(stats, count.getApp(), count.getUri(), count.getHits());
+        }
+    }
+
+    private void addHits(Map<ViewStatsDto, ViewStatsDto> stats, String app, String uri, long hits) {
+        ViewStatsDto stat = new ViewStatsDto(app, uri, hits);
+        ViewStatsDto foundStat = stats.putIfAbsent(stat, stat);
+        if (foundStat != null) {
+            foundStat.addHits(hits);
+        }
     }
 }
@@ -0,0 +1,16 @@
+-- Почасовые счетчики посещений, заполняются из уже сохраненных посещений
+CREATE TABLE IF NOT EXISTS stats_hourly (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits BIGINT NOT NULL,
+    UNIQUE (app, uri, bucket)
+);
+CREATE INDEX IF NOT EXISTS stats_hourly_bucket_idx ON stats_hourly (bucket);
+CREATE INDEX IF NOT EXISTS stats_hourly_uri_bucket_idx ON stats_hourly (uri, bucket);
+INSERT INTO stats_hourly (app, uri, bucket, hits)
+SELECT app, uri, date_trunc('hour', creation_date), COUNT(*)
+FROM stats
+WHERE NOT EXISTS (SELECT 1 FROM stats_hourly)
+GROUP BY app, uri, date_trunc('hour', creation_date);
@@ -0,0 +1,10 @@
+-- Почасовые HyperLogLog-скетчи уникальных ip
+CREATE TABLE IF NOT EXISTS stats_hourly_sketch (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL PRIMARY KEY,
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    sketch BYTEA NOT NULL,
+    UNIQUE (app, uri, bucket)
+);
+CREATE INDEX IF NOT EXISTS stats_hourly_sketch_bucket_idx ON stats_hourly_sketch (bucket);
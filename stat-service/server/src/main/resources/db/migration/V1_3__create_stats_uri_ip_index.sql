@@ -0,0 +1,2 @@
+-- Проверка уникальности посещения и выгрузка посетителей ищут по uri и ip
+CREATE INDEX IF NOT EXISTS stats_uri_ip_idx ON stats (uri, ip);
@@ -0,0 +1,37 @@
+-- Посещения переносятся в таблицу, секционированную по месяцам creation_date.
+-- Секции на будущие месяцы создает StatsPartitionService, посещения вне созданных секций попадают в stats_default
+ALTER TABLE stats RENAME TO stats_unpartitioned;
+ALTER TABLE stats_unpartitioned RENAME CONSTRAINT stats_pkey TO stats_unpartitioned_pkey;
+ALTER INDEX stats_uri_ip_idx RENAME TO stats_unpartitioned_uri_ip_idx;
+CREATE SEQUENCE stats_hit_id_seq;
+CREATE TABLE stats (
+    id BIGINT NOT NULL DEFAULT nextval('stats_hit_id_seq'),
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    ip VARCHAR(255) NOT NULL,
+    creation_date TIMESTAMP NOT NULL,
+    PRIMARY KEY (id, creation_date)
+) PARTITION BY RANGE (creation_date);
+ALTER SEQUENCE stats_hit_id_seq OWNED BY stats.id;
+CREATE TABLE stats_default PARTITION OF stats DEFAULT;
+CREATE INDEX stats_uri_ip_idx ON stats (uri, ip);
+CREATE INDEX stats_creation_date_idx ON stats (creation_date);
+DO $$
+DECLARE
+    month TIMESTAMP;
+BEGIN
+    FOR month IN
+        SELECT generate_series(date_trunc('month', coalesce((SELECT min(creation_date) FROM stats_unpartitioned),
+                                                            now()::timestamp)),
+                               date_trunc('month', now()::timestamp) + INTERVAL '1 month',
+                               INTERVAL '1 month')
+    LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF stats FOR VALUES FROM (%L) TO (%L)',
+                       'stats_' || to_char(month, '"y"YYYY"m"MM'), month, month + INTERVAL '1 month');
+    END LOOP;
+END $$;
+INSERT INTO stats (id, app, uri, ip, creation_date)
+SELECT id, app, uri, ip, creation_date
+FROM stats_unpartitioned;
+SELECT setval('stats_hit_id_seq', coalesce((SELECT max(id) FROM stats), 0) + 1, false);
+DROP TABLE stats_unpartitioned;
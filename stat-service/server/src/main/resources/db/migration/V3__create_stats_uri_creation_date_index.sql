@@ -0,0 +1,3 @@
+-- Сгруппированные подсчеты в getStats фильтруют по uri и промежутку creation_date,
+-- промежутки без uri обслуживает stats_creation_date_idx из V2
+CREATE INDEX IF NOT EXISTS stats_uri_creation_date_idx ON stats (uri, creation_date);
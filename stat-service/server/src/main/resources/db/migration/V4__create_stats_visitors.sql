@@ -0,0 +1,9 @@
+-- Пары uri и ip из удаленных секций stats, по ним проверяется уникальность посещений старше срока хранения
+-- отдельных посещений. last_seen - время последнего посещения, по нему пары удаляются вместе со счетчиками
+CREATE TABLE IF NOT EXISTS stats_visitors (
+    uri VARCHAR(255) NOT NULL,
+    ip VARCHAR(255) NOT NULL,
+    last_seen TIMESTAMP NOT NULL,
+    PRIMARY KEY (uri, ip)
+);
+CREATE INDEX IF NOT EXISTS stats_visitors_last_seen_idx ON stats_visitors (last_seen);
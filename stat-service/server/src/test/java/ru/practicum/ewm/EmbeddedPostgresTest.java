@@ -0,0 +1,46 @@
+package ru.practicum.ewm;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Основа тестов, запускающих приложение с сервером PostgreSQL, который стартует один раз для всех тестов,
+ * схема создается миграциями Flyway как в работе.
+ * PostgreSQL не запускается от имени root, поэтому при сборке от root тесты пропускаются
+ */
+@SpringBootTest
+public abstract class EmbeddedPostgresTest {
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void checkUser() {
+        assumeFalse("root".equals(System.getProperty("user.name")), "PostgreSQL cannot be started as root");
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        EmbeddedPostgres server = start();
+        registry.add("spring.datasource.url", () -> server.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    private static synchronized EmbeddedPostgres start() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return postgres;
+    }
+}
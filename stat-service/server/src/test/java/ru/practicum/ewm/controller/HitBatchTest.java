@@ -0,0 +1,123 @@
+package ru.practicum.ewm.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты сохранения пакета посещений через /hit/batch. Пакет сохраняется целиком или отклоняется целиком:
+ * при некорректной строке ни одно посещение, включая предыдущие строки, не сохраняется
+ */
+@AutoConfigureMockMvc
+class HitBatchTest extends EmbeddedPostgresTest {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String FIRST = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\"," +
+            "\"timestamp\":\"2024-01-01 10:15:00\"}";
+    private static final String SECOND = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.2\"," +
+            "\"timestamp\":\"2024-01-01 10:45:00\"}";
+    private static final String THIRD = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/2\",\"ip\":\"10.0.0.1\"," +
+            "\"timestamp\":\"2024-01-01 11:05:00\"}";
+    private static final String BLANK_IP = "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"ip\":\"\"," +
+            "\"timestamp\":\"2024-01-01 10:30:00\"}";
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE stats, stats_hourly, stats_hourly_sketch");
+    }
+
+    @Test
+    void ndjsonBatchIsSaved() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(FIRST + "\n" + SECOND + "\n" + THIRD + "\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.description").value("Информация о 3 посещениях сохранена"));
+
+        assertEquals(3, countHits());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT hits FROM stats_hourly WHERE uri = '/events/1'",
+                Long.class));
+    }
+
+    @Test
+    void malformedLineRejectsWholeBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(FIRST + "\n{\"app\": ewm-main-service}\n" + THIRD + "\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.Error", containsString("Строка 2 ")));
+
+        assertEquals(0, countHits());
+    }
+
+    @Test
+    void lineOfWrongTypeRejectsWholeBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(FIRST + "\n" + SECOND + "\n[1, 2]\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.Error", containsString("Строка 3")));
+
+        assertEquals(0, countHits());
+    }
+
+    @Test
+    void invalidHitInTheMiddleRejectsWholeBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(FIRST + "\n" + BLANK_IP + "\n" + THIRD + "\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.Error", containsString("Строка 2: ip")));
+
+        assertEquals(0, countHits());
+    }
+
+    @Test
+    void hitWithBadTimestampRejectsWholeBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(FIRST + "\n" + SECOND.replace("2024-01-01 10:45:00", "2024-01-01T10:45") + "\n"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, countHits());
+    }
+
+    @Test
+    void emptyBodyIsEmptyBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(APPLICATION_NDJSON)
+                        .content(""))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.description").value("Информация о 0 посещениях сохранена"));
+
+        assertEquals(0, countHits());
+    }
+
+    @Test
+    void invalidHitInJsonArrayRejectsWholeBatch() throws Exception {
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + FIRST + "," + BLANK_IP + "," + THIRD + "]"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(0, countHits());
+    }
+
+    private long countHits() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class);
+    }
+}
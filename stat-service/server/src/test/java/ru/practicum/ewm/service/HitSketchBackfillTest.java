@@ -0,0 +1,75 @@
+package ru.practicum.ewm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты построения скетчей по посещениям, сохраненным до появления таблицы скетчей
+ */
+class HitSketchBackfillTest extends EmbeddedPostgresTest {
+    private static final String URI = "/events/backfill";
+    private static final int VISITORS = 3_000;
+    private static final int HOURS = 3;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private HitSketchServiceImpl hitSketchService;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void setUp() {
+        hitSketchService.flush();
+        jdbcTemplate.execute("TRUNCATE stats, stats_hourly, stats_hourly_sketch");
+        day = LocalDate.now().minusDays(1).atStartOfDay();
+    }
+
+    @Test
+    void sketchesAreBuiltFromStoredHits() {
+        // Каждый посетитель заходит в каждый час, поэтому за любой промежуток уникальных посетителей VISITORS
+        jdbcTemplate.update("INSERT INTO stats (app, uri, ip, creation_date) " +
+                        "SELECT 'ewm-main-service', ?, '10.0.' || (v / 256) || '.' || (v % 256), " +
+                        "CAST(? AS TIMESTAMP) + h * INTERVAL '1 hour' + v * INTERVAL '1 second' " +
+                        "FROM generate_series(0, ? - 1) v, generate_series(0, ? - 1) h",
+                URI, Timestamp.valueOf(day), VISITORS, HOURS);
+
+        hitSketchService.backfill();
+
+        assertEquals(HOURS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hourly_sketch", Long.class));
+        Map<List<String>, HyperLogLog> sketches = hitSketchService.mergeSketches(day, day.plusHours(HOURS),
+                List.of(URI));
+        long estimate = sketches.get(List.of("ewm-main-service", URI)).estimate();
+        assertTrue(Math.abs(estimate - VISITORS) <= 0.05 * VISITORS, "Оценка " + estimate);
+    }
+
+    @Test
+    void storedSketchesAreNotBuiltAgain() {
+        jdbcTemplate.update("INSERT INTO stats (app, uri, ip, creation_date) VALUES ('ewm-main-service', ?, " +
+                "'10.0.0.1', ?)", URI, Timestamp.valueOf(day));
+        hitSketchService.backfill();
+        jdbcTemplate.update("INSERT INTO stats (app, uri, ip, creation_date) VALUES ('ewm-main-service', ?, " +
+                "'10.0.0.2', ?)", URI, Timestamp.valueOf(day.plusHours(1)));
+
+        hitSketchService.backfill();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hourly_sketch", Long.class));
+    }
+
+    @Test
+    void nothingIsBuiltWithoutHits() {
+        hitSketchService.backfill();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hourly_sketch", Long.class));
+    }
+}
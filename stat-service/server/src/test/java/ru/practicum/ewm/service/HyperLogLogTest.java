@@ -0,0 +1,123 @@
+package ru.practicum.ewm.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты скетча HyperLogLog: ошибка оценки при 2^12 регистрах, переход от разреженной сериализации к плотной,
+ * восстановление скетча из байтов и слияние скетчей
+ */
+class HyperLogLogTest {
+    // Три стандартные ошибки 1.04 / sqrt(4096)
+    private static final double MAX_ERROR = 0.05;
+    private static final int DENSE_SIZE = 1 + (1 << HyperLogLog.PRECISION);
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1_000, 5_000, 10_000, 100_000, 1_000_000})
+    void estimateIsWithinErrorBound(int cardinality) {
+        HyperLogLog sketch = sketchOf(0, cardinality);
+        // Повторы не меняют оценку
+        for (int i = 0; i < cardinality; i += 7) {
+            sketch.add(ip(i));
+        }
+
+        long estimate = sketch.estimate();
+
+        assertTrue(Math.abs(estimate - cardinality) <= MAX_ERROR * cardinality,
+                "Оценка " + estimate + " для " + cardinality + " уникальных значений");
+    }
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+        assertEquals(0, HyperLogLog.fromBytes(new HyperLogLog().toBytes()).estimate());
+    }
+
+    @Test
+    void smallSketchIsSerializedSparseAndLargeSketchDense() {
+        HyperLogLog sketch = new HyperLogLog();
+        int added = 0;
+        byte[] bytes = sketch.toBytes();
+        while (bytes.length < DENSE_SIZE) {
+            // Разреженный формат: байт формата и по 3 байта на каждый ненулевой регистр
+            assertEquals(0, (bytes.length - 1) % 3, "Размер разреженного скетча " + bytes.length);
+            assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+            sketch.add(ip(added++));
+            bytes = sketch.toBytes();
+        }
+
+        assertEquals(DENSE_SIZE, bytes.length);
+        assertTrue(added > 1_000 && added < 2_000, "Скетч стал плотным после " + added + " значений");
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 50, 1_000, 100_000})
+    void sketchIsRestoredFromBytes(int cardinality) {
+        HyperLogLog sketch = sketchOf(0, cardinality);
+        byte[] bytes = sketch.toBytes();
+
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertArrayEquals(bytes, restored.toBytes());
+        assertEquals(sketch.estimate(), restored.estimate());
+        restored.add(ip(cardinality));
+        sketch.add(ip(cardinality));
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{7}));
+    }
+
+    @Test
+    void mergedSketchEqualsSketchOfUnion() {
+        HyperLogLog first = sketchOf(0, 60_000);
+        HyperLogLog second = sketchOf(40_000, 100_000);
+
+        first.merge(second);
+
+        assertArrayEquals(sketchOf(0, 100_000).toBytes(), first.toBytes());
+        assertTrue(Math.abs(first.estimate() - 100_000) <= MAX_ERROR * 100_000,
+                "Оценка объединения " + first.estimate());
+    }
+
+    @Test
+    void mergeIsIdempotentAndWorksAcrossFormats() {
+        HyperLogLog dense = sketchOf(0, 10_000);
+        HyperLogLog sparse = HyperLogLog.fromBytes(sketchOf(20_000, 20_100).toBytes());
+        dense.merge(sparse);
+        byte[] merged = dense.toBytes();
+
+        dense.merge(sparse);
+        dense.merge(HyperLogLog.fromBytes(merged));
+
+        assertArrayEquals(merged, dense.toBytes());
+        assertArrayEquals(sketchOf(0, 10_000, 20_000, 20_100).toBytes(), merged);
+    }
+
+    /**
+     * Метод строит скетч по ip с номерами из промежутков [from, to)
+     */
+    private static HyperLogLog sketchOf(int... ranges) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int r = 0; r < ranges.length; r += 2) {
+            for (int i = ranges[r]; i < ranges[r + 1]; i++) {
+                sketch.add(ip(i));
+            }
+        }
+        return sketch;
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF);
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.ewm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.model.VisitorDto;
+import ru.practicum.ewm.repository.StatsPartitionRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты обслуживания секций stats с настройками по умолчанию: секции создаются на два месяца вперед,
+ * отдельные посещения хранятся 12 месяцев, счетчики, скетчи и пары uri и ip - 36 месяцев
+ */
+@AutoConfigureMockMvc
+class StatsPartitionTest extends EmbeddedPostgresTest {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'stats_y'uuuu'm'MM");
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String APP = "ewm-main-service";
+    private static final String URI = "/events/1";
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private StatsPartitionService statsPartitionService;
+    @Autowired
+    private StatsPartitionRepository statsPartitionRepository;
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE stats, stats_hourly, stats_hourly_sketch, stats_visitors");
+    }
+
+    @Test
+    void missingPartitionIsCreatedWithHitsOfDefaultPartition() {
+        YearMonth month = YearMonth.now().plusMonths(2);
+        String name = month.format(PARTITION_NAME);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+        LocalDateTime timestamp = month.atDay(3).atTime(12, 0);
+        insertHit("10.0.0.1", timestamp);
+        assertEquals("stats_default", partitionOf(timestamp));
+
+        statsPartitionService.maintainPartitions();
+
+        assertTrue(statsPartitionRepository.findPartitionNames().contains(name));
+        assertEquals(name, partitionOf(timestamp));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_default", Long.class));
+    }
+
+    @Test
+    void expiredPartitionIsRolledUpArchivedAndDropped() throws Exception {
+        YearMonth month = YearMonth.now().minusMonths(14);
+        String name = month.format(PARTITION_NAME);
+        if (!statsPartitionRepository.findPartitionNames().contains(name)) {
+            statsPartitionRepository.createPartition(name, month.atDay(1).atStartOfDay(),
+                    month.plusMonths(1).atDay(1).atStartOfDay());
+        }
+        LocalDateTime hour = month.atDay(2).atTime(10, 0);
+        insertHit("10.0.0.1", hour.plusMinutes(15));
+        insertHit("10.0.0.1", hour.plusMinutes(45));
+        insertHit("10.0.0.2", hour.plusDays(1));
+        // Счетчик с неверным значением, при удалении секции счетчики пересчитываются по посещениям
+        jdbcTemplate.update("INSERT INTO stats_hourly (app, uri, bucket, hits) VALUES (?, ?, ?, 100)",
+                APP, URI, Timestamp.valueOf(hour));
+
+        statsPartitionService.maintainPartitions();
+
+        assertFalse(statsPartitionRepository.findPartitionNames().contains(name));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Long.class));
+        assertEquals(List.of(2L, 1L), jdbcTemplate.queryForList("SELECT hits FROM stats_hourly ORDER BY bucket",
+                Long.class));
+        assertEquals(Timestamp.valueOf(hour.plusMinutes(45)), jdbcTemplate.queryForObject("SELECT last_seen " +
+                "FROM stats_visitors WHERE uri = ? AND ip = '10.0.0.1'", Timestamp.class, URI));
+        assertFalse(statsService.checkIfIpIsUnique(URI, "10.0.0.1"));
+        assertFalse(statsService.checkIfIpIsUnique(URI, "10.0.0.2"));
+        assertTrue(statsService.checkIfIpIsUnique(URI, "10.0.0.3"));
+        insertHit("10.0.0.2", LocalDateTime.now().minusHours(1));
+        List<VisitorDto> visitors = new ArrayList<>();
+        statsService.streamVisitors("/events/", visitors::add);
+        assertEquals(Set.of(new VisitorDto(URI, "10.0.0.1"), new VisitorDto(URI, "10.0.0.2")), Set.copyOf(visitors));
+        assertEquals(2, visitors.size());
+
+        mockMvc.perform(get("/stats")
+                        .param("start", hour.minusHours(1).format(FORMATTER))
+                        .param("end", hour.plusDays(2).format(FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Stats-Approximate"))
+                .andExpect(header().doesNotExist("X-Stats-Retained-Since"))
+                .andExpect(jsonPath("$[0].hits").value(3));
+        mockMvc.perform(get("/stats")
+                        .param("start", hour.minusHours(1).format(FORMATTER))
+                        .param("end", hour.plusDays(2).format(FORMATTER))
+                        .param("unique", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Stats-Approximate", "true"));
+    }
+
+    @Test
+    void rollupsOlderThanRetentionAreDeleted() throws Exception {
+        LocalDateTime retainedSince = YearMonth.now().minusMonths(36).atDay(1).atStartOfDay();
+        for (LocalDateTime bucket : List.of(retainedSince.minusHours(1), retainedSince)) {
+            jdbcTemplate.update("INSERT INTO stats_hourly (app, uri, bucket, hits) VALUES (?, ?, ?, 1)",
+                    APP, URI, Timestamp.valueOf(bucket));
+            jdbcTemplate.update("INSERT INTO stats_hourly_sketch (app, uri, bucket, sketch) VALUES (?, ?, ?, ?)",
+                    APP, URI, Timestamp.valueOf(bucket), new HyperLogLog().toBytes());
+        }
+        jdbcTemplate.update("INSERT INTO stats_visitors (uri, ip, last_seen) VALUES (?, '10.0.0.1', ?), " +
+                "(?, '10.0.0.2', ?)", URI, Timestamp.valueOf(retainedSince.minusSeconds(1)),
+                URI, Timestamp.valueOf(retainedSince));
+
+        statsPartitionService.maintainPartitions();
+
+        assertEquals(List.of(Timestamp.valueOf(retainedSince)), jdbcTemplate.queryForList("SELECT bucket " +
+                "FROM stats_hourly", Timestamp.class));
+        assertEquals(List.of(Timestamp.valueOf(retainedSince)), jdbcTemplate.queryForList("SELECT bucket " +
+                "FROM stats_hourly_sketch", Timestamp.class));
+        assertEquals(List.of("10.0.0.2"), jdbcTemplate.queryForList("SELECT ip FROM stats_visitors",
+                String.class));
+        assertEquals(retainedSince, statsPartitionService.getRollupsRetainedSince());
+        mockMvc.perform(get("/stats")
+                        .param("start", retainedSince.minusDays(1).format(FORMATTER))
+                        .param("end", retainedSince.plusDays(1).format(FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Stats-Retained-Since", retainedSince.format(FORMATTER)))
+                .andExpect(jsonPath("$[0].hits").value(1));
+        mockMvc.perform(get("/stats")
+                        .param("start", retainedSince.format(FORMATTER))
+                        .param("end", retainedSince.plusDays(1).format(FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Stats-Retained-Since"));
+    }
+
+    private void insertHit(String ip, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO stats (app, uri, ip, creation_date) VALUES (?, ?, ?, ?)",
+                APP, URI, ip, Timestamp.valueOf(timestamp));
+    }
+
+    private String partitionOf(LocalDateTime timestamp) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM stats WHERE creation_date = ?",
+                String.class, Timestamp.valueOf(timestamp));
+    }
+}
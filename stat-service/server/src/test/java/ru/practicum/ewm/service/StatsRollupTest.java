@@ -0,0 +1,115 @@
+package ru.practicum.ewm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.practicum.ewm.EmbeddedPostgresTest;
+import ru.practicum.ewm.model.EndpointHitDto;
+import ru.practicum.ewm.model.ViewStatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты сложения статистики из почасовых счетчиков stats_hourly и отдельных посещений на краях промежутка.
+ * Посещения лежат точно на границах часов, сразу после них, в середине и перед концом часа,
+ * результат сравнивается с подсчетом отдельных посещений COUNT(*) за тот же промежуток (start, end)
+ */
+class StatsRollupTest extends EmbeddedPostgresTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] OFFSETS = {"00:00", "00:01", "17:30", "59:59"};
+    private static final int HOURS = 6;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private StatsService statsService;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE stats, stats_hourly, stats_hourly_sketch");
+        day = LocalDate.now().minusDays(2).atStartOfDay();
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int hour = 0; hour < HOURS; hour++) {
+            for (int i = 0; i < OFFSETS.length; i++) {
+                String timestamp = day.plusHours(hour).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:"))
+                        + OFFSETS[i];
+                for (int uri = 1; uri <= 1 + i; uri++) {
+                    hits.add(new EndpointHitDto("ewm-main-service", "/events/" + uri, "10.0.0." + hour, timestamp));
+                }
+            }
+        }
+        statsService.addEndpointHits(hits.subList(0, hits.size() / 2));
+        hits.subList(hits.size() / 2, hits.size()).forEach(statsService::addEndpointHit);
+    }
+
+    @ParameterizedTest(name = "{0} - {1}")
+    @CsvSource({
+            "01:00:00, 04:00:00",
+            "01:00:00, 04:17:30",
+            "00:59:59, 04:00:00",
+            "00:17:30, 04:59:59",
+            "01:00:01, 03:59:59",
+            "00:00:00, 05:59:59",
+            "02:00:00, 02:59:59",
+            "02:17:30, 03:00:01",
+            "03:00:00, 04:00:00",
+            "03:00:00, 03:00:00"
+    })
+    void hitsMatchCountOfRawHits(LocalTime start, LocalTime end) {
+        LocalDateTime startTime = day.with(start);
+        LocalDateTime endTime = day.with(end);
+
+        List<ViewStatsDto> stats = statsService.getStats(startTime.format(FORMATTER), endTime.format(FORMATTER),
+                null, false, false).getStats();
+
+        Map<String, Long> hits = new HashMap<>();
+        for (ViewStatsDto stat : stats) {
+            assertNull(hits.put(stat.getUri(), stat.getHits()), "Uri " + stat.getUri() + " встречается дважды");
+        }
+        assertEquals(countRawHits(startTime, endTime), hits);
+    }
+
+    @ParameterizedTest(name = "{0} - {1}")
+    @CsvSource({
+            "01:00:00, 04:00:00",
+            "00:17:30, 04:59:59"
+    })
+    void hitsOfUrisMatchCountOfRawHits(LocalTime start, LocalTime end) {
+        LocalDateTime startTime = day.with(start);
+        LocalDateTime endTime = day.with(end);
+
+        List<ViewStatsDto> stats = statsService.getStats(startTime.format(FORMATTER), endTime.format(FORMATTER),
+                new String[]{"/events/2", "/events/4"}, false, false).getStats();
+
+        Map<String, Long> hits = new HashMap<>();
+        stats.forEach(stat -> hits.put(stat.getUri(), stat.getHits()));
+        Map<String, Long> expected = countRawHits(startTime, endTime);
+        expected.keySet().retainAll(List.of("/events/2", "/events/4"));
+        assertEquals(expected, hits);
+        assertTrue(stats.get(0).getHits() >= stats.get(stats.size() - 1).getHits(),
+                "Статистика не отсортирована по числу посещений");
+    }
+
+    private Map<String, Long> countRawHits(LocalDateTime start, LocalDateTime end) {
+        Map<String, Long> hits = new HashMap<>();
+        jdbcTemplate.query("SELECT uri, COUNT(*) FROM stats WHERE creation_date > ? AND creation_date < ? " +
+                        "GROUP BY uri", (RowCallbackHandler) rs -> hits.put(rs.getString(1), rs.getLong(2)),
+                Timestamp.valueOf(start), Timestamp.valueOf(end));
+        return hits;
+    }
+}